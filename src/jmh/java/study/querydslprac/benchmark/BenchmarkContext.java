@@ -0,0 +1,112 @@
+package study.querydslprac.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydslprac.QuerydslPracApplication;
+import study.querydslprac.repository.cache.MemberCountCache;
+import study.querydslprac.repository.cache.MemberSearchCache;
+import study.querydslprac.repository.index.MemberUsernameIndex;
+import study.querydslprac.service.TeamStatsService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * 웹 서버 없이 JPA만 띄우고, 매번 새 인메모리 H2에 데이터를 넣어둠 (스키마/인덱스는 flyway 마이그레이션 그대로)
+ * 시드 데이터는 JPA가 아닌 JDBC batch로 넣음 (벤치마크 준비시간 단축)
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    private static final int SEED_BATCH_SIZE = 1_000;
+
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    public static BenchmarkContext start(int teamCount, int memberCount) {
+        return start(WebApplicationType.NONE, teamCount, memberCount);
+    }
+
+    /**
+     * 임의 포트로 톰캣까지 띄움 (getPort)
+     */
+    public static BenchmarkContext startWeb(int teamCount, int memberCount, String... properties) {
+        return start(WebApplicationType.SERVLET, teamCount, memberCount, properties);
+    }
+
+    private static BenchmarkContext start(WebApplicationType webApplicationType, int teamCount, int memberCount,
+                                          String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslPracApplication.class)
+                .web(webApplicationType)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:jmh-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false",
+                        "decorator.datasource.p6spy.enable-logging=false",
+                        "server.port=0",
+                        "logging.level.root=warn")
+                .properties(properties)
+                .run();
+        BenchmarkContext benchmarkContext = new BenchmarkContext(context);
+        benchmarkContext.seed(teamCount, memberCount);
+        return benchmarkContext;
+    }
+
+    public int getPort() {
+        return Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * 벤치마크가 캐시 히트만 재지 않도록 매 호출 전에 비움
+     */
+    public void clearCaches() {
+        context.getBean(MemberSearchCache.class).getCache().clear();
+        context.getBean(MemberCountCache.class).getCache().clear();
+    }
+
+    private void seed(int teamCount, int memberCount) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        List<Object[]> teams = new ArrayList<>();
+        for (int i = 0; i < teamCount; i++) {
+            teams.add(new Object[]{"team" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into team (id, name) values (next value for hibernate_sequence, ?)", teams);
+        List<Long> teamIds = jdbcTemplate.queryForList("select id from team order by id", Long.class);
+
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < memberCount; i++) {
+            batch.add(new Object[]{"member" + i, i % 100, teamIds.get(i % teamCount)});
+            if (batch.size() == SEED_BATCH_SIZE) {
+                insertMembers(jdbcTemplate, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertMembers(jdbcTemplate, batch);
+        }
+        //JDBC로 넣은 데이터는 엔티티 이벤트가 없으므로 메모리 집계/인덱스를 다시 만듦
+        context.getBean(TeamStatsService.class).rebuild();
+        context.getBean(MemberUsernameIndex.class).rebuild();
+    }
+
+    private void insertMembers(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        jdbcTemplate.batchUpdate(
+                "insert into member (member_id, username, age, team_id) values (next value for hibernate_sequence, ?, ?, ?)",
+                batch);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
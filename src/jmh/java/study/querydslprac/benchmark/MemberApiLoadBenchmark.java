@@ -0,0 +1,66 @@
+package study.querydslprac.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * /v1 ~ /v3 부하 비교: 기본 톰캣 플랫폼 스레드 vs 가상 스레드 모드(member.virtual-threads.enabled)
+ * 서버 톰캣 스레드(200)보다 많은 동시 요청을 보내야 차이가 보이므로 클라이언트 스레드를 넉넉히 둠
+ * 가상 스레드 모드는 Java 21 이상에서만 실행 가능
+ *
+ * 실행: ./gradlew jmh -PjmhIncludes=MemberApiLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@Threads(256)
+public class MemberApiLoadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"/v1/members?teamName=team1&ageGoe=20&ageLoe=40",
+            "/v2/members?teamName=team1&page=5&size=20",
+            "/v3/members?teamName=team1&page=5&size=20"})
+    public String path;
+
+    @Param({"100000"})
+    public int memberCount;
+
+    private BenchmarkContext context;
+    private HttpClient client;
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startWeb(10, memberCount,
+                "member.virtual-threads.enabled=" + virtualThreads,
+                //결과 캐시가 DB 경로를 가리지 않도록 TTL을 최소로 둠
+                "member.search-cache.ttl=1ns",
+                "member.count-cache.ttl=1ns");
+        client = HttpClient.newHttpClient();
+        uri = URI.create("http://localhost:" + context.getPort() + path);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int request() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,152 @@
+package study.querydslprac.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.entity.Member;
+import study.querydslprac.repository.MemberJpaRepository;
+import study.querydslprac.repository.MemberRepository;
+import study.querydslprac.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * 레포지토리 조회 경로별 비용 비교
+ * 같은 조건(teamName + 나이 범위)으로 Querydsl 메서드와 JPQL, 네이티브 SQL 기준값을 같이 잼
+ *
+ * 실행: ./gradlew jmh (결과는 build/results/jmh)
+ */
+@State(Scope.Benchmark)
+public class MemberRepositoryBenchmark {
+
+    //JPQL 기준값, search와 같은 쿼리
+    private static final String JPQL =
+            "select new study.querydslprac.dto.MemberTeamDto(m.id, m.username, m.age, t.id, t.name)" +
+            " from Member m left join m.team t" +
+            " where t.name = :teamName and m.age >= :ageGoe and m.age <= :ageLoe";
+
+    //네이티브 SQL 기준값
+    private static final String NATIVE_SQL =
+            "select m.member_id, m.username, m.age, t.id, t.name" +
+            " from member m left outer join team t on m.team_id = t.id" +
+            " where t.name = ? and m.age >= ? and m.age <= ?";
+
+    @Param({"10"})
+    public int teamCount;
+
+    @Param({"10000", "100000"})
+    public int memberCount;
+
+    //searchPage 계열에서 읽을 페이지 번호 (offset 비용 확인용)
+    @Param({"0", "100"})
+    public int pageNumber;
+
+    private BenchmarkContext context;
+    private MemberRepository memberRepository;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberTestRepository memberTestRepository;
+    private EntityManagerFactory emf;
+    private JdbcTemplate jdbcTemplate;
+
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(teamCount, memberCount);
+        memberRepository = context.getBean(MemberRepository.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+        emf = context.getBean(EntityManagerFactory.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team1");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        pageRequest = PageRequest.of(pageNumber, 20);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() {
+        context.clearCaches();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchJpaRepository() {
+        return memberJpaRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    @Benchmark
+    public List<Member> searchMember() {
+        return memberJpaRepository.searchMember(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return memberRepository.searchPageSimple(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination() {
+        return memberTestRepository.applyPagination(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> applyPaginationWithCountQuery() {
+        return memberTestRepository.applyPagination2(condition, pageRequest);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> jpqlBaseline() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery(JPQL, MemberTeamDto.class)
+                    .setParameter("teamName", condition.getTeamName())
+                    .setParameter("ageGoe", condition.getAgeGoe())
+                    .setParameter("ageLoe", condition.getAgeLoe())
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> nativeSqlBaseline() {
+        return jdbcTemplate.query(NATIVE_SQL,
+                (rs, rowNum) -> new MemberTeamDto(
+                        rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getLong(4), rs.getString(5)),
+                condition.getTeamName(), condition.getAgeGoe(), condition.getAgeLoe());
+    }
+}
@@ -0,0 +1,121 @@
+package study.querydslprac.benchmark;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.dto.QMemberTeamDto;
+import study.querydslprac.repository.support.MemberSearchTemplates;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydslprac.entity.QMember.member;
+import static study.querydslprac.entity.QTeam.team;
+
+/**
+ * search(MemberSearchCondition) 요청당 CPU/할당 비교
+ * querydslWhereParameter: 예전 방식 (매번 QMemberTeamDto + BooleanExpression 트리 생성 후 JPQL 직렬화)
+ * compiledTemplate: MemberSearchTemplates (모양별 Querydsl 쿼리를 한번만 직렬화해두고 바인딩만 함)
+ *
+ * 16가지 조건 모양을 돌아가며 쓰고, DB 비용이 차이를 가리지 않도록 데이터는 작게 둠
+ * 할당량은 gc 프로파일러의 gc.alloc.rate.norm (B/op)으로 비교
+ */
+@State(Scope.Thread)
+public class MemberSearchShapeBenchmark {
+
+    @Param({"100"})
+    public int memberCount;
+
+    private BenchmarkContext context;
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private JPAQueryFactory queryFactory;
+    private MemberSearchCondition[] conditions;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(2, memberCount);
+        emf = context.getBean(EntityManagerFactory.class);
+        em = emf.createEntityManager();
+        queryFactory = new JPAQueryFactory(em);
+
+        conditions = new MemberSearchCondition[16];
+        for (int shape = 0; shape < conditions.length; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "member1" : null);
+            condition.setTeamName((shape & 2) != 0 ? "team1" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 0 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 50 : null);
+            conditions[shape] = condition;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.close();
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> querydslWhereParameter() {
+        MemberSearchCondition condition = nextCondition();
+        List<MemberTeamDto> result = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .fetch();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> compiledTemplate() {
+        List<MemberTeamDto> result = MemberSearchTemplates.search(em, nextCondition());
+        em.clear();
+        return result;
+    }
+
+    private MemberSearchCondition nextCondition() {
+        MemberSearchCondition condition = conditions[next];
+        next = (next + 1) & 15;
+        return condition;
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
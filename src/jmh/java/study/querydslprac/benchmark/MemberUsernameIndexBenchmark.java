@@ -0,0 +1,90 @@
+package study.querydslprac.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydslprac.entity.Member;
+import study.querydslprac.repository.MemberRepository;
+import study.querydslprac.repository.index.MemberUsernameIndex;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 회원명 조회: 메모리 인덱스(MemberUsernameIndex, findByUsername) vs DB(JDBC)
+ * 시드 회원명은 member0 ~ member{memberCount-1}
+ *
+ * 인덱스 메모리는 시작할때 회원명당 바이트 수를 출력함 (이론값: UTF-8 길이 + 4 + 8)
+ * 할당량은 gc 프로파일러 결과(gc.alloc.rate.norm)로 비교
+ */
+@State(Scope.Benchmark)
+public class MemberUsernameIndexBenchmark {
+
+    private static final String EXACT_SQL = "select * from member where username = ?";
+    private static final String LIKE_SQL =
+            "select distinct username from member where username like ? order by username limit 10";
+
+    @Param({"100000", "1000000"})
+    public int memberCount;
+
+    private BenchmarkContext context;
+    private MemberRepository memberRepository;
+    private MemberUsernameIndex usernameIndex;
+    private JdbcTemplate jdbcTemplate;
+
+    private String hitName;
+    private String prefix;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(10, memberCount);
+        memberRepository = context.getBean(MemberRepository.class);
+        usernameIndex = context.getBean(MemberUsernameIndex.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        hitName = "member" + (memberCount / 2);
+        prefix = "member" + (memberCount / 20);
+
+        System.out.printf("username index: %d names, %d bytes, %.1f bytes/name%n",
+                usernameIndex.size(), usernameIndex.memoryBytes(),
+                (double) usernameIndex.memoryBytes() / usernameIndex.size());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> exactIndexed() {
+        return memberRepository.findByUsername(hitName);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> exactQuery() {
+        return jdbcTemplate.queryForList(EXACT_SQL, hitName);
+    }
+
+    @Benchmark
+    public List<Member> missIndexed() {
+        return memberRepository.findByUsername("nobody");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> missQuery() {
+        return jdbcTemplate.queryForList(EXACT_SQL, "nobody");
+    }
+
+    @Benchmark
+    public List<String> autocompleteIndexed() {
+        return usernameIndex.autocomplete(prefix, 10);
+    }
+
+    @Benchmark
+    public List<String> autocompleteLike() {
+        return jdbcTemplate.queryForList(LIKE_SQL, String.class, prefix + "%");
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydslprac.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 레포지토리 호출 동시 실행 수를 커넥션 풀 크기로 제한
+ * 가상 스레드는 싸게 만들어지므로 제한이 없으면 요청 수만큼 커넥션 풀 대기열에 쌓이고 결국 풀 타임아웃으로 터짐
+ * 여기서 먼저 줄을 세우면 대기는 세마포어(가상 스레드라면 거의 공짜)에서 하고, 풀에서는 대기하지 않음
+ *
+ * permit은 커넥션을 들고 있는 동안 잡고 있어야 함
+ * - 트랜잭션 밖에서 호출되면 레포지토리 호출(= 그 안의 트랜잭션)이 끝날때 반납
+ * - 바깥 트랜잭션 안에서 호출되면 커넥션은 트랜잭션이 끝날때까지 잡혀있으므로 트랜잭션이 끝날때 반납
+ *   (같은 트랜잭션 안의 다음 레포지토리 호출은 permit을 다시 잡지 않음, REQUIRES_NEW 처럼 트랜잭션이 새로 열리면 따로 잡음)
+ * - open-in-view가 켜져 있으면 요청 내내 커넥션을 들고 있어서 이 제한이 의미가 없으므로 가상 스레드 모드에서는 끔
+ *   (OpenInViewEnvironmentPostProcessor)
+ *
+ * 레포지토리 안에서 다른 레포지토리를 부르는 경우 같은 스레드는 한번만 permit을 잡음
+ * 동시에 같은 검색을 하는 요청은 하나만 실행되므로(MemberSearchSingleFlight) 그 바깥에서 permit을 잡지 않도록 뒤에 둠
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class ConnectionPoolBulkhead {
+
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+
+    public ConnectionPoolBulkhead(int permits, Duration acquireTimeout) {
+        this.permits = new Semaphore(permits, true);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    //repository 패키지 바로 아래 레포지토리들과 스프링 데이터 레포지토리 (하위 cache/support 패키지는 제외)
+    @Around("within(study.querydslprac.repository.*) || this(org.springframework.data.repository.Repository)")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        int[] depth = DEPTH.get();
+        //이 트랜잭션이 이미 permit을 잡고 있음
+        if (depth[0] > 0 || TransactionSynchronizationManager.hasResource(this)) {
+            return proceed(joinPoint, depth);
+        }
+        if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new TransientDataAccessResourceException("DB 호출 대기 시간(" + acquireTimeout + ")을 넘었습니다.");
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            holdUntilTransactionCompletion();
+            return proceed(joinPoint, depth);
+        }
+        try {
+            return proceed(joinPoint, depth);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void holdUntilTransactionCompletion() {
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ConnectionPoolBulkhead.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(ConnectionPoolBulkhead.this, Boolean.TRUE);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ConnectionPoolBulkhead.this);
+                permits.release();
+            }
+        });
+    }
+
+    private Object proceed(ProceedingJoinPoint joinPoint, int[] depth) throws Throwable {
+        depth[0]++;
+        try {
+            return joinPoint.proceed();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * 레포지토리를 거치지 않고 다른 스레드에서 커넥션을 쓰는 경우 (ParallelCountExecutor 워커)
+     * 기다리지 않으며, 못 잡으면 false
+     */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,124 @@
+package study.querydslprac.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 읽기/쓰기 데이터소스 분리 (member.datasource.routing.enabled=true)
+ *
+ * 레포지토리의 조회 메서드는 @Transactional(readOnly = true) 이므로 replica로 가고, 그 외(쓰기, 트랜잭션 밖)는 primary로 감
+ * 쓰기 트랜잭션 안에서 호출된 조회는 바깥 트랜잭션을 따라 primary에서 읽음 (방금 쓴 데이터를 볼 수 있음)
+ * replica에서 읽은 결과는 복제 지연만큼 늦을 수 있음, 지연은 ReplicaLagMonitor 참고
+ *
+ * 커넥션 풀(ReplicationDataSources)과 ReplicaLagMonitor는 각각 빈으로 등록해서 컨텍스트가 닫힐때 정리됨
+ * 요청 내내 커넥션을 잡고 있으면 readOnly 트랜잭션도 그 커넥션을 쓰게 되므로 open-in-view는 꺼야 함 (OpenInViewEnvironmentPostProcessor)
+ *
+ * 로컬에서는 H2 메모리 DB 두개로 확인할 수 있음 (replica에는 복제가 없으므로 migrate-replicas로 스키마만 만듦)
+ * spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1
+ * member.datasource.routing.replicas[0].url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "member.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceRoutingConfig {
+
+    private final DataSourceRoutingProperties routingProperties;
+    private final ObjectProvider<ReplicaLagMonitor> lagMonitor;
+
+    public DataSourceRoutingConfig(DataSourceRoutingProperties routingProperties,
+                                   ObjectProvider<ReplicaLagMonitor> lagMonitor) {
+        this.routingProperties = routingProperties;
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicationDataSources replicationDataSources(DataSourceProperties dataSourceProperties) {
+        List<DataSourceRoutingProperties.Replica> replicaProperties = routingProperties.getReplicas();
+        if (replicaProperties.isEmpty()) {
+            throw new IllegalStateException("member.datasource.routing.replicas가 비어있습니다.");
+        }
+
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName(ReplicationRoutingDataSource.PRIMARY);
+        primary.setMaximumPoolSize(routingProperties.getPrimaryPoolSize());
+
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        ReplicationDataSources dataSources = new ReplicationDataSources(primary, replicas);
+        try {
+            for (int i = 0; i < replicaProperties.size(); i++) {
+                DataSourceRoutingProperties.Replica replica = replicaProperties.get(i);
+                HikariDataSource dataSource = DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(replica.getUrl())
+                        .username(replica.getUsername())
+                        .password(replica.getPassword())
+                        .build();
+                String name = "replica-" + i;
+                dataSource.setPoolName(name);
+                dataSource.setMaximumPoolSize(replica.getPoolSize());
+                replicas.put(name, dataSource);
+                if (routingProperties.isMigrateReplicas()) {
+                    Flyway.configure()
+                            .dataSource(dataSource)
+                            .locations("classpath:db/migration")
+                            .load()
+                            .migrate();
+                }
+            }
+        } catch (RuntimeException e) {
+            //빈 생성이 실패하면 destroyMethod가 불리지 않으므로 이미 만든 풀은 여기서 닫음
+            dataSources.close();
+            throw e;
+        }
+        return dataSources;
+    }
+
+    @Bean(destroyMethod = "stop")
+    public ReplicaLagMonitor replicaLagMonitor(ReplicationDataSources dataSources, MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(dataSources.getPrimary(), dataSources.getReplicas(),
+                routingProperties.getMaxLag(), meterRegistry);
+    }
+
+    /**
+     * 트랜잭션의 readOnly 여부가 정해진 뒤(첫 쿼리)에 커넥션을 얻도록 LazyConnectionDataSourceProxy로 감쌈
+     * 이 빈 하나만 DataSource로 등록되므로 JPA, flyway, JdbcTemplate, p6spy 모두 이것을 사용함
+     */
+    @Bean
+    public DataSource dataSource(ReplicationDataSources dataSources, ReplicaLagMonitor replicaLagMonitor,
+                                 MeterRegistry meterRegistry) {
+        ReplicationRoutingDataSource routingDataSource = new ReplicationRoutingDataSource(
+                dataSources.getPrimary(), dataSources.getReplicas(), replicaLagMonitor, meterRegistry);
+        routingDataSource.afterPropertiesSet();
+        log.info("read-only transactions are routed to {}", dataSources.getReplicas().keySet());
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * heartbeat 테이블은 flyway가 만들므로 기동이 끝난 뒤에 측정을 시작함
+     * 첫 측정 전까지는 replica 지연을 알 수 없으므로 모두 primary에서 읽음
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLagMonitor() {
+        lagMonitor.getObject().start(routingProperties.getLagCheckInterval());
+    }
+}
@@ -0,0 +1,41 @@
+package study.querydslprac.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 트랜잭션을 replica로 보내는 설정 (member.datasource.routing.*)
+ * primary는 spring.datasource.* 를 그대로 사용함
+ */
+@ConfigurationProperties(prefix = "member.datasource.routing")
+@Getter @Setter
+public class DataSourceRoutingProperties {
+
+    private boolean enabled = false;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    //지연이 이보다 큰 replica는 건너뜀, 모두 지연되면 primary로 읽음
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    //heartbeat 쓰기/읽기 주기
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    //replica에도 flyway 마이그레이션을 실행 (로컬 H2 두개로 띄울때, 실제 복제 환경에서는 끔)
+    private boolean migrateReplicas = false;
+
+    private int primaryPoolSize = 10;
+
+    @Getter @Setter
+    public static class Replica {
+        private String url;
+        private String username = "sa";
+        private String password = "";
+        private int poolSize = 10;
+    }
+}
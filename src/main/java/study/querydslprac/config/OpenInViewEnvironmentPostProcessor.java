@@ -0,0 +1,52 @@
+package study.querydslprac.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 요청 내내 커넥션을 잡고 있으면 안되는 모드에서는 open-in-view(OSIV)를 끔
+ *
+ * - 가상 스레드 모드(member.virtual-threads.enabled): 요청에서 처음 잡은 커넥션을 요청이 끝날때까지 들고 있으므로
+ *   레포지토리 호출/트랜잭션 단위로 permit을 잡는 ConnectionPoolBulkhead가 실제 커넥션 사용량을 제한하지 못함
+ * - 읽기/쓰기 라우팅(member.datasource.routing.enabled): 요청에서 처음 잡은 커넥션을 이후 트랜잭션이 같이 쓰므로
+ *   readOnly 조회가 replica로 가지 않고, replica 커넥션을 잡은 요청이면 이후 쓰기가 replica로 감
+ *
+ * spring.jpa.open-in-view를 따로 설정하지 않았으면 false로 두고, 직접 true로 설정했으면 기동하지 않음
+ * (META-INF/spring.factories에 등록)
+ */
+public class OpenInViewEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String OPEN_IN_VIEW = "spring.jpa.open-in-view";
+
+    //OSIV를 끄게 하는 설정 -> 꺼야 하는 이유
+    private static final Map<String, String> REQUIRES_DISABLED = new LinkedHashMap<>();
+
+    static {
+        REQUIRES_DISABLED.put("member.virtual-threads.enabled", "요청 내내 커넥션을 잡고 있으면 ConnectionPoolBulkhead로 제한할 수 없음");
+        REQUIRES_DISABLED.put("member.datasource.routing.enabled", "요청 내내 잡은 커넥션을 트랜잭션이 같이 쓰면 readOnly 여부로 라우팅할 수 없음");
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        boolean required = false;
+        for (Map.Entry<String, String> entry : REQUIRES_DISABLED.entrySet()) {
+            if (!environment.getProperty(entry.getKey(), Boolean.class, false)) {
+                continue;
+            }
+            if (Boolean.TRUE.equals(environment.getProperty(OPEN_IN_VIEW, Boolean.class))) {
+                throw new IllegalStateException(entry.getKey() + "=true 이면 " + OPEN_IN_VIEW
+                        + "=false 여야 합니다. (" + entry.getValue() + ")");
+            }
+            required = true;
+        }
+        if (required && environment.getProperty(OPEN_IN_VIEW) == null) {
+            environment.getPropertySources().addLast(
+                    new MapPropertySource("memberOpenInView", Map.of(OPEN_IN_VIEW, false)));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package study.querydslprac.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * replica 복제 지연 측정
+ * 주기적으로 primary의 replication_heartbeat에 현재 시각을 쓰고, replica에서 읽은 시각과의 차이를 지연으로 봄
+ * (heartbeat 주기만큼의 오차가 있음)
+ *
+ * 지연은 datasource.replica.lag 게이지(초, replica 태그)와 /metrics/datasource로 볼 수 있음
+ * 읽을 수 없는 replica는 지연을 알 수 없음(-1)으로 두고 라우팅에서 제외함
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final long UNKNOWN = -1;
+
+    private final JdbcTemplate primary;
+    private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+    private final Duration maxLag;
+    private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+    //replica가 마지막으로 반영한 heartbeat 시각 (epoch millis)
+    private final Map<String, Long> appliedBeatMillis = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReplicaLagMonitor(DataSource primary, Map<String, ? extends DataSource> replicas, Duration maxLag,
+                             MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.maxLag = maxLag;
+        replicas.forEach((name, dataSource) -> {
+            this.replicas.put(name, new JdbcTemplate(dataSource));
+            lagMillis.put(name, UNKNOWN);
+            Gauge.builder("datasource.replica.lag", lagMillis, lags -> lags.get(name) / 1000.0)
+                    .tag("replica", name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        });
+    }
+
+    public void start(Duration interval) {
+        check();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                check();
+            } catch (RuntimeException e) {
+                log.warn("replica lag check failed", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public void check() {
+        long now = System.currentTimeMillis();
+        try {
+            primary.update("update replication_heartbeat set beat_at = ? where id = 1", new Timestamp(now));
+        } catch (DataAccessException e) {
+            log.warn("heartbeat write to primary failed: {}", e.getMessage());
+        }
+        replicas.forEach((name, replica) -> {
+            try {
+                Timestamp beatAt = replica.queryForObject(
+                        "select beat_at from replication_heartbeat where id = 1", Timestamp.class);
+                lagMillis.put(name, beatAt == null ? UNKNOWN : Math.max(0, now - beatAt.getTime()));
+                appliedBeatMillis.put(name, beatAt == null ? UNKNOWN : beatAt.getTime());
+            } catch (DataAccessException e) {
+                log.warn("heartbeat read from {} failed: {}", name, e.getMessage());
+                lagMillis.put(name, UNKNOWN);
+                appliedBeatMillis.put(name, UNKNOWN);
+            }
+        });
+    }
+
+    public boolean isHealthy(String replica) {
+        long lag = lagMillis.getOrDefault(replica, UNKNOWN);
+        return lag != UNKNOWN && lag <= maxLag.toMillis();
+    }
+
+    /**
+     * 라우팅될 수 있는(지연이 max-lag 이내인) replica가 모두 since 이후에 쓴 heartbeat까지 반영했는지
+     * heartbeat도 primary에 쓰는 것이라 순서대로 복제되므로, 반영했으면 since 이전에 커밋된 쓰기도 반영된 것
+     * 라우팅될 replica가 없으면 primary에서 읽으므로 true
+     */
+    public boolean hasApplied(long since) {
+        for (String name : replicas.keySet()) {
+            if (isHealthy(name) && appliedBeatMillis.getOrDefault(name, UNKNOWN) <= since) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * replica별 지연(ms), 알 수 없으면 -1
+     */
+    public Map<String, Long> getLagMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        replicas.keySet().forEach(name -> result.put(name, lagMillis.getOrDefault(name, UNKNOWN)));
+        return result;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydslprac.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 라우팅에 쓰는 커넥션 풀 (primary + replica)
+ * 풀 자체를 DataSource 빈으로 등록하면 JPA/JdbcTemplate 주입이 모호해지고 p6spy가 풀마다 한번 더 감싸므로
+ * 풀을 묶어서 빈 하나로 등록하고, 컨텍스트가 닫힐때 close로 모두 닫음 (DataSourceRoutingConfig)
+ */
+@Getter
+public class ReplicationDataSources {
+
+    private final HikariDataSource primary;
+    private final Map<String, HikariDataSource> replicas;
+
+    public ReplicationDataSources(HikariDataSource primary, Map<String, HikariDataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+    }
+
+    public void close() {
+        replicas.values().forEach(HikariDataSource::close);
+        primary.close();
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydslprac.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))이면 replica, 아니면 primary 커넥션을 줌
+ * replica는 돌아가면서 고르고, 지연이 max-lag를 넘은 replica는 건너뜀
+ *
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 정해지지 않으므로 LazyConnectionDataSourceProxy로 감싸서
+ * 첫 쿼리때 커넥션을 얻도록 해야 함 (DataSourceRoutingConfig)
+ *
+ * 결정은 datasource.routing 카운터로 남김 (target=primary|replica 이름, reason=write|read|replica-lag)
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+    private final List<String> replicaNames;
+    private final ReplicaLagMonitor lagMonitor;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicationRoutingDataSource(HikariDataSource primary, Map<String, HikariDataSource> replicas,
+                                        ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicaNames = new ArrayList<>(replicas.keySet());
+        this.lagMonitor = lagMonitor;
+        this.meterRegistry = meterRegistry;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return route(PRIMARY, "write");
+        }
+        int size = replicaNames.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            String name = replicaNames.get((start + i) % size);
+            if (lagMonitor.isHealthy(name)) {
+                return route(name, "read");
+            }
+        }
+        return route(PRIMARY, "replica-lag");
+    }
+
+    private String route(String target, String reason) {
+        meterRegistry.counter("datasource.routing", "target", target, "reason", reason).increment();
+        return target;
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+}
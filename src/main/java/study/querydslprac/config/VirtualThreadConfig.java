@@ -0,0 +1,50 @@
+package study.querydslprac.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 가상 스레드 모드 (member.virtual-threads.enabled=true)
+ *
+ * 톰캣 요청 처리 스레드를 가상 스레드로 바꿔서 JDBC 대기중인 요청이 워커 스레드를 붙잡지 않게 함
+ * 대신 요청이 무한정 들어와서 커넥션 풀 앞에 줄을 서지 않도록 레포지토리 호출 동시 실행 수를 풀 크기로 제한함 (ConnectionPoolBulkhead)
+ *
+ * 빌드는 Java 11 기준이므로 가상 스레드 API는 리플렉션으로 찾음, Java 21 이상에서 실행해야 함
+ * 가상 스레드 모드에서는 spring.jpa.open-in-view가 false로 바뀜 (OpenInViewEnvironmentPostProcessor)
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "member.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        log.info("tomcat requests run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean
+    public ConnectionPoolBulkhead connectionPoolBulkhead(
+            @Value("${member.virtual-threads.max-concurrent-db-calls:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+            @Value("${member.virtual-threads.acquire-timeout:5s}") Duration acquireTimeout) {
+        return new ConnectionPoolBulkhead(permits, acquireTimeout);
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("가상 스레드를 사용할 수 없습니다. Java 21 이상에서 실행하거나 "
+                    + "member.virtual-threads.enabled를 끄세요. (현재 " + System.getProperty("java.version") + ")", e);
+        }
+    }
+}
@@ -1,18 +1,33 @@
 package study.querydslprac.controller;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import study.querydslprac.entity.Member;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.dto.MemberBulkRow;
 import study.querydslprac.entity.Team;
+import study.querydslprac.repository.MemberBulkRepository;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 스프링 띄울때 데이터 미리 넣어두고 API로 조회만 테스트 할 수 있게 하기위한 설정임
+ * 규모/분포는 InitMemberProperties(member.init.*)로 조절
  */
 @Profile("local")
 @Component
@@ -27,22 +42,159 @@ public class InitMember {
         initMemberService.init();
     }
 
+    /**
+     * 팀은 먼저 한 트랜잭션에서 만들고(persist + 주기적 flush/clear),
+     * 회원은 순번 구간(청크)으로 나눠서 여러 스레드가 각자의 트랜잭션으로 JDBC batch insert 함
+     * 청크에는 순번 구간만 들고 있으므로 수천만건이어도 메모리에는 청크 하나 분량만 올라감
+     */
+    @Slf4j
+    @Profile("local")
     @Component
-    static class InitMemberService{
+    @RequiredArgsConstructor
+    static class InitMemberService {
+
+        private static final int TEAM_FLUSH_SIZE = 1_000;
+        private static final int PROGRESS_LOG_CHUNKS = 100;
+
         @PersistenceContext
         private EntityManager em;
 
-        @Transactional
+        private final InitMemberProperties properties;
+        private final MemberBulkRepository memberBulkRepository;
+        private final TransactionTemplate transactionTemplate;
+
         public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
+            if (!properties.isEnabled() || properties.getTeamCount() < 1) {
+                return;
+            }
+            long start = System.nanoTime();
 
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB ;
-                em.persist(new Member("member"+i, i, selectedTeam));
+            Map<String, Long> teamIds = transactionTemplate.execute(status -> createTeams());
+            String[] teamNames = teamIds.keySet().toArray(new String[0]);
+            long[] teamEnds = teamEnds(teamNames.length);
+            long total = teamEnds[teamEnds.length - 1];
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()));
+            AtomicLong inserted = new AtomicLong();
+            AtomicLong doneChunks = new AtomicLong();
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (long from = 0; from < total; from += properties.getChunkSize()) {
+                    long chunkFrom = from;
+                    long chunkTo = Math.min(total, from + properties.getChunkSize());
+                    futures.add(executor.submit(() -> {
+                        //청크마다 팀 맵을 복사해서 넘김 (insertChunk가 맵을 채울 수 있으므로 스레드간 공유하지 않음)
+                        List<MemberBulkRow> rows = rows(chunkFrom, chunkTo, teamNames, teamEnds);
+                        inserted.addAndGet(memberBulkRepository.insertChunk(rows, new HashMap<>(teamIds)));
+                        if (doneChunks.incrementAndGet() % PROGRESS_LOG_CHUNKS == 0) {
+                            logThroughput("progress", inserted.get(), start);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("초기 데이터 생성 실패", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("초기 데이터 생성 중단", e);
+            } finally {
+                executor.shutdownNow();
             }
+            logThroughput("done teams=" + teamNames.length, inserted.get(), start);
+        }
+
+        private Map<String, Long> createTeams() {
+            Map<String, Long> teamIds = new LinkedHashMap<>();
+            List<Team> pending = new ArrayList<>(TEAM_FLUSH_SIZE);
+            for (int i = 0; i < properties.getTeamCount(); i++) {
+                Team team = new Team(String.format(properties.getTeamNamePattern(), alphabetic(i)));
+                em.persist(team);
+                pending.add(team);
+                if (pending.size() == TEAM_FLUSH_SIZE || i == properties.getTeamCount() - 1) {
+                    em.flush();
+                    pending.forEach(t -> teamIds.put(t.getName(), t.getId()));
+                    pending.clear();
+                    em.clear();
+                }
+            }
+            return teamIds;
+        }
+
+        /**
+         * 팀별 회원 순번 구간의 끝(누적합), k번째 팀의 크기는 1/k^zipfExponent 에 비례
+         */
+        private long[] teamEnds(int teamCount) {
+            long total = (long) teamCount * properties.getMembersPerTeam();
+            double[] weights = new double[teamCount];
+            double weightSum = 0;
+            for (int k = 0; k < teamCount; k++) {
+                weights[k] = 1.0 / Math.pow(k + 1, properties.getZipfExponent());
+                weightSum += weights[k];
+            }
+            long[] ends = new long[teamCount];
+            long assigned = 0;
+            for (int k = 0; k < teamCount; k++) {
+                assigned += Math.round(total * weights[k] / weightSum);
+                ends[k] = Math.min(assigned, total);
+            }
+            //반올림 오차는 마지막 팀이 흡수
+            ends[teamCount - 1] = total;
+            return ends;
+        }
+
+        private List<MemberBulkRow> rows(long from, long to, String[] teamNames, long[] teamEnds) {
+            //청크 시작 순번으로 시드를 정하므로 스레드 수와 상관없이 항상 같은 데이터가 만들어짐
+            Random random = new Random(properties.getSeed() ^ from);
+            List<MemberBulkRow> rows = new ArrayList<>((int) (to - from));
+            int teamIndex = teamIndex(from, teamEnds);
+            for (long i = from; i < to; i++) {
+                while (i >= teamEnds[teamIndex]) {
+                    teamIndex++;
+                }
+                rows.add(new MemberBulkRow(
+                        String.format(properties.getUsernamePattern(), i),
+                        age(i, random),
+                        teamNames[teamIndex]));
+            }
+            return rows;
+        }
+
+        private int teamIndex(long memberIndex, long[] teamEnds) {
+            int found = Arrays.binarySearch(teamEnds, memberIndex);
+            //구간 끝과 같으면 다음 팀의 첫번째 회원
+            int index = found >= 0 ? found + 1 : -found - 1;
+            return Math.min(index, teamEnds.length - 1);
+        }
+
+        private int age(long memberIndex, Random random) {
+            int min = properties.getAgeMin();
+            int range = properties.getAgeMax() - min + 1;
+            switch (properties.getAgeDistribution()) {
+                case UNIFORM:
+                    return min + random.nextInt(range);
+                case NORMAL:
+                    double age = min + (range - 1) / 2.0 + random.nextGaussian() * (range - 1) / 6.0;
+                    return (int) Math.max(min, Math.min(properties.getAgeMax(), Math.round(age)));
+                default:
+                    return min + (int) (memberIndex % range);
+            }
+        }
+
+        // 0 -> A, 25 -> Z, 26 -> AA ...
+        private static String alphabetic(int index) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = index; i >= 0; i = i / 26 - 1) {
+                sb.insert(0, (char) ('A' + i % 26));
+            }
+            return sb.toString();
+        }
+
+        private void logThroughput(String phase, long rows, long start) {
+            long elapsedNanos = System.nanoTime() - start;
+            log.info("init member {} rows={} elapsed={}ms rows/sec={}", phase, rows, elapsedNanos / 1_000_000,
+                    elapsedNanos > 0 ? rows * 1_000_000_000L / elapsedNanos : rows);
         }
     }
 }
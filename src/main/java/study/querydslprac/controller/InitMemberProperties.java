@@ -0,0 +1,48 @@
+package study.querydslprac.controller;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * local 프로필 초기 데이터 설정 (member.init.*)
+ * 기본값은 예전 초기 데이터와 같은 규모 (팀 2개, 회원 100명, 나이 0~99)
+ */
+@Profile("local")
+@Component
+@ConfigurationProperties(prefix = "member.init")
+@Getter @Setter
+public class InitMemberProperties {
+
+    public enum AgeDistribution {
+        //회원 순번대로 ageMin ~ ageMax를 반복
+        SEQUENTIAL,
+        UNIFORM,
+        //평균 (ageMin + ageMax) / 2, 표준편차 (ageMax - ageMin) / 6 에서 범위 밖은 잘라냄
+        NORMAL
+    }
+
+    private boolean enabled = true;
+
+    private int teamCount = 2;
+    private int membersPerTeam = 50;
+
+    //팀 크기 쏠림 정도, 0이면 모든 팀이 같은 크기이고 1이면 k번째 팀이 1/k 비율 (Zipf)
+    private double zipfExponent = 0;
+
+    private AgeDistribution ageDistribution = AgeDistribution.SEQUENTIAL;
+    private int ageMin = 0;
+    private int ageMax = 99;
+
+    //String.format 패턴, 회원은 0부터 시작하는 전체 순번, 팀은 A, B, ..., Z, AA, AB ... 가 들어감
+    private String usernamePattern = "member%d";
+    private String teamNamePattern = "team%s";
+
+    //트랜잭션 하나에 넣을 회원 수, 동시에 돌릴 스레드 수
+    private int chunkSize = 10_000;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private long seed = 42;
+}
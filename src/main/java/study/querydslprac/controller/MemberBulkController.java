@@ -0,0 +1,75 @@
+package study.querydslprac.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydslprac.dto.BulkInsertError;
+import study.querydslprac.dto.BulkInsertResult;
+import study.querydslprac.service.MemberBulkLoadException;
+import study.querydslprac.service.MemberBulkLoader;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@RestController
+@RequiredArgsConstructor
+public class MemberBulkController {
+
+    private final MemberBulkLoader memberBulkLoader;
+
+    //file 파라미터로 읽을 수 있는 디렉토리, 설정하지 않으면 요청 body로만 받음
+    @Value("${member.bulk.import-dir:}")
+    private String importDir;
+
+    /**
+     * 요청 body(또는 import-dir 아래 파일)를 스트리밍으로 읽어서 대량 저장
+     * format=csv|ndjson (기본 ndjson)
+     */
+    @PostMapping("/members/bulk")
+    public BulkInsertResult bulkInsert(@RequestParam(defaultValue = "ndjson") String format,
+                                       @RequestParam(required = false) String file,
+                                       HttpServletRequest request) throws IOException {
+        MemberBulkLoader.Format bulkFormat = MemberBulkLoader.Format.from(format);
+        if (file == null) {
+            try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+                return memberBulkLoader.load(reader, bulkFormat);
+            }
+        }
+        try (Reader reader = Files.newBufferedReader(resolveImportFile(file), StandardCharsets.UTF_8)) {
+            return memberBulkLoader.load(reader, bulkFormat);
+        }
+    }
+
+    //잘못된 줄은 400, DB 저장 실패는 500, 둘 다 그 전 청크까지 저장된 건수와 실패한 줄 번호를 같이 내려줌
+    @ExceptionHandler(MemberBulkLoadException.class)
+    public ResponseEntity<BulkInsertError> bulkLoadFailed(MemberBulkLoadException e) {
+        HttpStatus status = e.isStorageFailure() ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status)
+                .body(new BulkInsertError(e.getCommittedRows(), e.getLineNumber(), e.getMessage()));
+    }
+
+    private Path resolveImportFile(String file) {
+        if (importDir.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "member.bulk.import-dir이 설정되어 있지 않습니다.");
+        }
+        Path base = Paths.get(importDir).toAbsolutePath().normalize();
+        Path path = base.resolve(file).normalize();
+        //../ 등으로 import-dir 밖의 파일을 읽지 못하게 막음
+        if (!path.startsWith(base) || !Files.isRegularFile(path)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "읽을 수 없는 파일입니다: " + file);
+        }
+        return path;
+    }
+}
@@ -1,39 +1,224 @@
 package study.querydslprac.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydslprac.config.ReplicaLagMonitor;
+import study.querydslprac.dto.CursorPage;
+import study.querydslprac.dto.MemberField;
 import study.querydslprac.dto.MemberSearchCondition;
 import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
 import study.querydslprac.repository.MemberJpaRepository;
 import study.querydslprac.repository.MemberRepository;
+import study.querydslprac.repository.cache.MemberSearchKey;
+import study.querydslprac.repository.cache.TableVersions;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.util.StringUtils.hasText;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+    private static final int MAX_AUTOCOMPLETE_SIZE = 50;
+    private static final int MAX_IDS = 1000;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    private final TableVersions tableVersions;
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
 
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, WebRequest request) {
+        if (notModified(request, "v1", MemberSearchKey.of(condition))) {
+            return null;
+        }
         return memberJpaRepository.search(condition);
     }
 
+    /**
+     * fields=username,age 처럼 필요한 컬럼만 조회 (v1~v3 공통)
+     * 응답은 row마다 고른 필드만 담은 map, teamName을 고르지 않고 팀명 조건도 없으면 팀 조인을 하지 않음
+     * 고를 수 있는 필드는 MemberField (memberId, username, age, teamId, teamName)
+     */
+    @GetMapping(value = "/v1/members", params = "fields")
+    public List<Map<String, Object>> searchMemberFieldsV1(MemberSearchCondition condition,
+                                                          @RequestParam String fields, WebRequest request) {
+        Set<MemberField> memberFields = parseFields(fields);
+        if (notModified(request, "v1", MemberSearchKey.of(condition), memberFields)) {
+            return null;
+        }
+        return memberRepository.searchFields(condition, memberFields);
+    }
+
+    //v1과 같은 결과를 한 row씩 응답에 바로 씀 (format=ndjson|csv)
+    @GetMapping("/v1/members/stream")
+    public ResponseEntity<StreamingResponseBody> streamMemberV1(MemberSearchCondition condition,
+                                                                @RequestParam(defaultValue = "ndjson") String format) {
+        MemberExportFormat exportFormat = MemberExportFormat.from(format);
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            exportFormat.writeHeader(writer);
+            try {
+                memberJpaRepository.searchStream(condition, dto -> {
+                    try {
+                        exportFormat.writeRow(writer, objectMapper, dto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                //클라이언트가 끊은 경우 등, 커서는 try-with-resources로 이미 닫힘
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
+    }
+
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageble) {
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageble, WebRequest request) {
+        if (notModified(request, "v2", MemberSearchKey.of(condition), pageble)) {
+            return null;
+        }
         return memberRepository.searchPageSimple(condition, pageble);
     }
 
      @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageble) {
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageble, WebRequest request) {
+        if (notModified(request, "v3", MemberSearchKey.of(condition), pageble)) {
+            return null;
+        }
         return memberRepository.searchPageComplex(condition, pageble);
     }
 
+    @GetMapping(value = {"/v2/members", "/v3/members"}, params = "fields")
+    public Page<Map<String, Object>> searchMemberFieldsV3(MemberSearchCondition condition, Pageable pageble,
+                                                         @RequestParam String fields, WebRequest request) {
+        Set<MemberField> memberFields = parseFields(fields);
+        if (notModified(request, "v3", MemberSearchKey.of(condition), pageble, memberFields)) {
+            return null;
+        }
+        return memberRepository.searchPageFields(condition, memberFields, pageble);
+    }
 
+    //카운트 쿼리 없이 다음 페이지 여부만 알려줌 (무한 스크롤용), sort는 MemberTeamDto 필드명만 가능
+    @GetMapping("/v5/members")
+    public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageble) {
+        try {
+            return memberRepository.searchSlice(condition, pageble);
+        } catch (IllegalArgumentException e) {
+            //지원하지 않는 정렬
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
 
+    /**
+     * offset 대신 커서로 페이징 (cursor가 없으면 첫 페이지)
+     * sort=username,desc 처럼 memberId, username, age 중 하나로 정렬 (없으면 memberId 오름차순)
+     * 다음 페이지는 nextCursor만 넘기면 커서에 담긴 정렬을 그대로 씀
+     */
+    @GetMapping("/v4/members")
+    public CursorPage<MemberTeamDto> searchMemberV4(MemberSearchCondition condition, Sort sort,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        try {
+            return memberRepository.searchByCursor(condition, sort, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            //잘못된 커서, 지원하지 않는 정렬
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    //여러 회원을 id로 한번에 조회 (ids=1,2,3), 요청한 id 순서대로 응답하고 없는 id는 빠짐
+    @GetMapping("/members")
+    public List<MemberTeamDto> findMembers(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids는 최대 " + MAX_IDS + "개까지 조회할 수 있습니다.");
+        }
+        List<MemberTeamDto> result = new ArrayList<>(ids.size());
+        for (Member member : memberJpaRepository.findAllByIds(ids)) {
+            Team team = member.getTeam();
+            result.add(new MemberTeamDto(member.getId(), member.getUsername(), member.getAge(),
+                    team != null ? team.getId() : null,
+                    team != null ? team.getName() : null));
+        }
+        return result;
+    }
+
+    //회원명 자동완성, 메모리 인덱스로 찾으므로 like 쿼리를 날리지 않음 (MemberUsernameIndex 참고)
+    @GetMapping("/members/autocomplete")
+    public List<String> autocompleteUsername(@RequestParam String prefix,
+                                             @RequestParam(defaultValue = "10") int size) {
+        if (!hasText(prefix)) {
+            return List.of();
+        }
+        int limit = Math.max(1, Math.min(size, MAX_AUTOCOMPLETE_SIZE));
+        return memberRepository.autocompleteUsername(prefix, limit);
+    }
+
+    private static Set<MemberField> parseFields(String fields) {
+        try {
+            return MemberField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * member/team 테이블 버전(TableVersions)으로 ETag를 붙이고
+     * 클라이언트가 가진 것과 같으면 true (DB 조회 없이 304 응답, 핸들러는 null을 반환)
+     *
+     * Last-Modified는 초 단위라 같은 초 안에 생긴 쓰기를 구분하지 못하므로 ETag와 같이 내려주기만 하고 검증에는 쓰지 않음
+     * (If-Modified-Since만 보내면 항상 200)
+     * 읽기 라우팅 중에 replica가 마지막 쓰기를 아직 반영하지 못했으면 옛날 row에 새 ETag가 붙게 되므로 ETag를 붙이지 않음
+     */
+    private boolean notModified(WebRequest request, Object... keyParts) {
+        //버전 번호가 올라가기 전에 변경 시각이 먼저 바뀌므로 ETag를 먼저 만들어야 변경 시각이 ETag보다 늦지 않음
+        String etag = tableVersions.etag(keyParts);
+        long lastModified = tableVersions.lastModified();
+        ReplicaLagMonitor lagMonitor = replicaLagMonitor.getIfAvailable();
+        if (lagMonitor != null && !lagMonitor.hasApplied(lastModified)) {
+            return false;
+        }
+        boolean notModified = request.checkNotModified(etag);
+        HttpServletResponse response = ((ServletWebRequest) request).getResponse();
+        if (response != null) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        return notModified;
+    }
 }
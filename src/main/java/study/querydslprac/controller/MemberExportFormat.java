@@ -0,0 +1,80 @@
+package study.querydslprac.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import study.querydslprac.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 스트리밍 export 포맷
+ * 한 row씩 바로 writer에 쓰고 잊어버리므로 결과 건수와 상관없이 메모리 사용량이 일정함
+ */
+public enum MemberExportFormat {
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        void writeHeader(Writer writer) {
+        }
+
+        @Override
+        void writeRow(Writer writer, ObjectMapper objectMapper, MemberTeamDto dto) throws IOException {
+            //writer를 닫지 않도록 AUTO_CLOSE_TARGET을 끈 generator로 씀
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                objectMapper.writeValue(generator, dto);
+            }
+            writer.write('\n');
+        }
+    },
+
+    CSV("text/csv") {
+        @Override
+        void writeHeader(Writer writer) throws IOException {
+            writer.write("memberId,username,age,teamId,teamName\n");
+        }
+
+        @Override
+        void writeRow(Writer writer, ObjectMapper objectMapper, MemberTeamDto dto) throws IOException {
+            writer.write(String.valueOf(dto.getMemberId()));
+            writer.write(',');
+            writer.write(escape(dto.getUsername()));
+            writer.write(',');
+            writer.write(String.valueOf(dto.getAge()));
+            writer.write(',');
+            writer.write(dto.getTeamId() != null ? String.valueOf(dto.getTeamId()) : "");
+            writer.write(',');
+            writer.write(escape(dto.getTeamName()));
+            writer.write('\n');
+        }
+    };
+
+    private final String contentType;
+
+    MemberExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    abstract void writeHeader(Writer writer) throws IOException;
+
+    abstract void writeRow(Writer writer, ObjectMapper objectMapper, MemberTeamDto dto) throws IOException;
+
+    public static MemberExportFormat from(String format) {
+        return "csv".equalsIgnoreCase(format) ? CSV : NDJSON;
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
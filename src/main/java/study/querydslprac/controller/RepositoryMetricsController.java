@@ -0,0 +1,146 @@
+package study.querydslprac.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydslprac.config.ReplicaLagMonitor;
+import study.querydslprac.repository.cache.MemberSearchSingleFlight;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 레포지토리 메서드별 지표 요약 (RepositoryMetricsAspect 참고)
+ * 원본 meter는 /actuator/metrics/repository.invocation 등으로도 볼 수 있음
+ */
+@RestController
+@RequiredArgsConstructor
+public class RepositoryMetricsController {
+
+    private final MeterRegistry meterRegistry;
+    private final EntityManagerFactory emf;
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+
+    @GetMapping("/metrics/repositories")
+    public List<Map<String, Object>> repositories() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Timer timer : meterRegistry.find("repository.invocation").timers()) {
+            String repository = timer.getId().getTag("repository");
+            String method = timer.getId().getTag("method");
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("repository", repository);
+            stats.put("method", method);
+            stats.put("exception", timer.getId().getTag("exception"));
+            stats.put("count", snapshot.count());
+            stats.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+            stats.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                stats.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+            }
+            stats.put("rowsMean", mean("repository.rows", repository, method));
+            stats.put("sqlStatementsMean", mean("repository.sql.statements", repository, method));
+            stats.put("countQueryExecuted", count("repository.count.query", repository, method, "executed"));
+            stats.put("countQuerySkipped", count("repository.count.query", repository, method, "skipped"));
+            //같은 조회가 동시에 들어와서 다른 호출의 결과를 받은 수 (MemberSearchSingleFlight)
+            stats.put("coalesced", count(MemberSearchSingleFlight.SINGLE_FLIGHT, repository, method, "coalesced"));
+            result.add(stats);
+        }
+        return result;
+    }
+
+    /**
+     * 하이버네이트 2차 캐시/쿼리 캐시 히트, 미스 통계
+     */
+    @GetMapping("/metrics/cache")
+    public Map<String, Object> cache() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        result.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        result.put("queryCachePuts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("hits", region.getHitCount());
+            regionStats.put("misses", region.getMissCount());
+            regionStats.put("puts", region.getPutCount());
+            regionStats.put("elementsInMemory", region.getElementCountInMemory());
+            regions.put(regionName, regionStats);
+        }
+        result.put("regions", regions);
+        return result;
+    }
+
+    /**
+     * 읽기/쓰기 데이터소스 라우팅 결정 횟수와 replica 복제 지연 (DataSourceRoutingConfig)
+     */
+    @GetMapping("/metrics/datasource")
+    public Map<String, Object> datasource() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+        result.put("routing", monitor != null);
+        if (monitor == null) {
+            return result;
+        }
+
+        List<Map<String, Object>> routes = new ArrayList<>();
+        for (Counter counter : meterRegistry.find("datasource.routing").counters()) {
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("target", counter.getId().getTag("target"));
+            route.put("reason", counter.getId().getTag("reason"));
+            route.put("count", counter.count());
+            routes.add(route);
+        }
+        result.put("routes", routes);
+
+        Map<String, Object> replicas = new LinkedHashMap<>();
+        monitor.getLagMillis().forEach((name, lagMillis) -> {
+            Map<String, Object> replica = new LinkedHashMap<>();
+            replica.put("lagMs", lagMillis);
+            replica.put("healthy", monitor.isHealthy(name));
+            replicas.put(name, replica);
+        });
+        result.put("maxLagMs", monitor.getMaxLag().toMillis());
+        result.put("replicas", replicas);
+        return result;
+    }
+
+    private Double mean(String name, String repository, String method) {
+        DistributionSummary summary = meterRegistry.find(name)
+                .tags("repository", repository, "method", method)
+                .summary();
+        return summary != null ? summary.mean() : null;
+    }
+
+    private double count(String name, String repository, String method, String outcome) {
+        Counter counter = meterRegistry.find(name)
+                .tags("repository", repository, "method", method, "outcome", outcome)
+                .counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydslprac.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydslprac.metrics.SlowQueryLog;
+import study.querydslprac.metrics.SlowQueryRecord;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class SlowQueryController {
+
+    private final SlowQueryLog slowQueryLog;
+
+    /**
+     * 기준 시간보다 오래 걸린 최근 SQL (최신순, SlowQueryLog 참고)
+     */
+    @GetMapping("/admin/slow-queries")
+    public List<SlowQueryRecord> slowQueries() {
+        return slowQueryLog.recent();
+    }
+
+    @DeleteMapping("/admin/slow-queries")
+    public void clear() {
+        slowQueryLog.clear();
+    }
+}
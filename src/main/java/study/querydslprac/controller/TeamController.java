@@ -0,0 +1,24 @@
+package study.querydslprac.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydslprac.dto.TeamStatsDto;
+import study.querydslprac.service.TeamStatsService;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamStatsService teamStatsService;
+
+    /**
+     * 팀별 회원수/나이 통계, 메모리에 유지하는 값이라 SQL 없이 응답함 (TeamStatsService 참고)
+     */
+    @GetMapping("/teams/stats")
+    public List<TeamStatsDto> stats() {
+        return teamStatsService.findAll();
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydslprac.dto;
+
+import lombok.Getter;
+
+/**
+ * 벌크 입력 실패 응답 (잘못된 줄 400, DB 저장 실패 500)
+ * committedRows: 실패 전까지 커밋된 row 수, 다시 올릴 때는 failedLine이 있던 청크부터 올리면 됨
+ */
+@Getter
+public class BulkInsertError {
+
+    private final long committedRows;
+    private final long failedLine;
+    private final String message;
+
+    public BulkInsertError(long committedRows, long failedLine, String message) {
+        this.committedRows = committedRows;
+        this.failedLine = failedLine;
+        this.message = message;
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydslprac.dto;
+
+import lombok.Getter;
+
+@Getter
+public class BulkInsertResult {
+
+    private final long rows;
+    private final long elapsedMillis;
+    private final long rowsPerSecond;
+
+    public BulkInsertResult(long rows, long elapsedNanos) {
+        this.rows = rows;
+        this.elapsedMillis = elapsedNanos / 1_000_000;
+        this.rowsPerSecond = elapsedNanos > 0 ? rows * 1_000_000_000L / elapsedNanos : rows;
+    }
+}
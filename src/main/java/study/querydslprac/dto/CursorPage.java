@@ -0,0 +1,23 @@
+package study.querydslprac.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 커서(keyset) 방식 페이징 결과
+ * nextCursor는 다음 페이지 요청시 그대로 넘겨주면 되는 불투명 토큰 (마지막 페이지면 null)
+ */
+@Getter
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final boolean hasNext;
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
@@ -0,0 +1,19 @@
+package study.querydslprac.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 벌크 입력 한 줄 (CSV: username,age,teamName / NDJSON: {"username":..,"age":..,"teamName":..})
+ * teamName이 비어있으면 팀 없는 회원으로 저장
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberBulkRow {
+
+    private String username;
+    private int age;
+    private String teamName;
+}
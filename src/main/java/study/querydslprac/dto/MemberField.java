@@ -0,0 +1,56 @@
+package study.querydslprac.dto;
+
+import com.querydsl.core.types.Expression;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydslprac.entity.QMember.member;
+import static study.querydslprac.entity.QTeam.team;
+
+/**
+ * 검색 API의 fields 파라미터로 고를 수 있는 컬럼 (MemberTeamDto와 같은 이름)
+ * teamId는 member.team_id(FK)를 그대로 읽으므로 팀 조인이 필요 없고, teamName만 조인이 필요함
+ */
+@Getter
+@RequiredArgsConstructor
+public enum MemberField {
+    MEMBER_ID("memberId", member.id, false),
+    USERNAME("username", member.username, false),
+    AGE("age", member.age, false),
+    TEAM_ID("teamId", member.team.id, false),
+    TEAM_NAME("teamName", team.name, true);
+
+    private final String fieldName;
+    private final Expression<?> expression;
+    private final boolean teamJoinRequired;
+
+    /**
+     * "username,age" 형태를 파싱, 순서는 항상 위 선언 순서
+     * @throws IllegalArgumentException 없는 필드이거나 비어있는 경우
+     */
+    public static Set<MemberField> parse(String fields) {
+        Set<MemberField> result = EnumSet.noneOf(MemberField.class);
+        for (String name : fields.split(",")) {
+            if (hasText(name)) {
+                result.add(of(name.trim()));
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("fields가 비어있습니다.");
+        }
+        return result;
+    }
+
+    private static MemberField of(String fieldName) {
+        for (MemberField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("알 수 없는 필드입니다: " + fieldName);
+    }
+}
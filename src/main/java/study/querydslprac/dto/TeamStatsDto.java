@@ -0,0 +1,24 @@
+package study.querydslprac.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamStatsDto {
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private long ageSum;
+    private Double ageAvg;
+    private Integer ageMin;
+    private Integer ageMax;
+
+    public TeamStatsDto(Long teamId, String teamName, long memberCount, long ageSum, Integer ageMin, Integer ageMax) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.ageAvg = memberCount > 0 ? (double) ageSum / memberCount : null;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+    }
+}
@@ -1,6 +1,7 @@
 package study.querydslprac.entity;
 
 import lombok.*;
+import study.querydslprac.entity.listener.EntityChangeListener;
 
 import javax.persistence.*;
 
@@ -8,6 +9,7 @@ import javax.persistence.*;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Getter @Setter
 @Entity
+@EntityListeners(EntityChangeListener.class)
 @ToString(of = {"id","username","age"}) //무한참조 방지를위해 연관관계에는 toString설정 지양
 public class Member {
 
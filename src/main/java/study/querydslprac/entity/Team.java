@@ -1,6 +1,9 @@
 package study.querydslprac.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import study.querydslprac.entity.listener.EntityChangeListener;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -9,6 +12,9 @@ import java.util.List;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Getter @Setter
 @Entity
+@EntityListeners(EntityChangeListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) //팀은 거의 안바뀌고 member.team 지연로딩마다 조회되므로 2차 캐시에 둠
 @ToString(of = {"id","name"})
 public class Team {
 
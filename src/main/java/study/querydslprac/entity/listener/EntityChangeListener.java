@@ -0,0 +1,29 @@
+package study.querydslprac.entity.listener;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+import javax.persistence.PreUpdate;
+
+/**
+ * 엔티티 쓰기를 스프링 이벤트로 바꿔주는 JPA 리스너
+ * 스프링부트가 hibernate BeanContainer를 스프링으로 잡아주기 때문에 생성자 주입이 가능함
+ *
+ * Post~ 콜백은 flush 시점에야 호출되므로, 같은 트랜잭션 안에서 save 직후 조회하는 경우를 위해 Pre~ 콜백을 사용
+ */
+public class EntityChangeListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public EntityChangeListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PrePersist
+    @PreUpdate
+    @PreRemove
+    public void onChange(Object entity) {
+        publisher.publishEvent(new EntityChangedEvent(entity.getClass()));
+    }
+}
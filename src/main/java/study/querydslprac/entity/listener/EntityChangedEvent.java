@@ -0,0 +1,23 @@
+package study.querydslprac.entity.listener;
+
+import lombok.Getter;
+
+/**
+ * Member/Team 테이블에 쓰기가 발생했음을 알리는 이벤트
+ * 엔티티 리스너(persist/update/remove)와 벌크 연산 양쪽에서 발행함
+ */
+@Getter
+public class EntityChangedEvent {
+
+    private final Class<?> entityType;
+    private final boolean bulk;
+
+    public EntityChangedEvent(Class<?> entityType) {
+        this(entityType, false);
+    }
+
+    public EntityChangedEvent(Class<?> entityType, boolean bulk) {
+        this.entityType = entityType;
+        this.bulk = bulk;
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydslprac.entity.listener;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 하이버네이트 post-insert/update/delete 이벤트를 받는 리스너 (TeamStatsService, MemberUsernameIndex)
+ * 이벤트의 state 배열에서 속성 위치를 찾는 indexOf를 같이 제공함
+ */
+public abstract class PostWriteEventListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    public void register(EntityManagerFactory emf) {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    //커밋 후 이벤트는 쓰지 않음 (커밋 후 반영은 각자 TransactionSynchronization으로 처리)
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    protected static int indexOf(EntityPersister persister, String property) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(property)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException(persister.getEntityName() + "." + property + " 속성이 없습니다.");
+    }
+}
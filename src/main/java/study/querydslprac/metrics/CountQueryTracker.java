@@ -0,0 +1,31 @@
+package study.querydslprac.metrics;
+
+/**
+ * 페이징 메서드에서 카운트 조회(PageableExecutionUtils의 count supplier)가 실제로 호출됐는지 기록
+ * 레포지토리의 count supplier 안에서 executed()를 호출하고, RepositoryMetricsAspect가 메서드 단위로 읽음
+ */
+public final class CountQueryTracker {
+
+    private static final ThreadLocal<boolean[]> EXECUTED = ThreadLocal.withInitial(() -> new boolean[1]);
+
+    private CountQueryTracker() {
+    }
+
+    public static void executed() {
+        EXECUTED.get()[0] = true;
+    }
+
+    /**
+     * @return 이전 값 (중첩 호출시 reset 으로 되돌려줘야 함)
+     */
+    static boolean reset(boolean value) {
+        boolean[] flag = EXECUTED.get();
+        boolean previous = flag[0];
+        flag[0] = value;
+        return previous;
+    }
+
+    static boolean isExecuted() {
+        return EXECUTED.get()[0];
+    }
+}
@@ -0,0 +1,8 @@
+package study.querydslprac.metrics;
+
+public class NPlusOneDetectedException extends IllegalStateException {
+
+    public NPlusOneDetectedException(String message) {
+        super(message);
+    }
+}
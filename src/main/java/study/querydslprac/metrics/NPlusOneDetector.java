@@ -0,0 +1,179 @@
+package study.querydslprac.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * N+1 감지기
+ *
+ * Member.team 같은 LAZY 연관관계는 프록시를 처음 건드릴때 select가 한번 나감
+ * 엔티티 목록을 조회한 뒤 루프에서 getTeam().getName()을 호출하면 회원 수만큼 select가 나가는데 로그로는 잘 안보임
+ * 하이버네이트 이벤트로 프록시/컬렉션 초기화를 잡아서 같은 연관관계가 한 스코프(요청) 안에서
+ * lazy-load-threshold번 이상 초기화되면 연관관계 이름과 직전에 호출된 레포지토리 메서드를 같이 리포트함
+ * 2차 캐시(Team)에서 꺼낸 초기화는 SQL이 나가지 않으므로 세지 않음
+ * (기본 리스너 앞뒤에 리스너를 달아서 그 사이에 SqlStatementCounter가 늘었는지로 판단)
+ *
+ * member.n-plus-one.mode
+ * - warn (기본) : 로그만 남김
+ * - fail : NPlusOneDetectedException을 던짐 (test 프로필, src/test/resources/application-test.yml)
+ * - off
+ */
+@Slf4j
+@Component
+public class NPlusOneDetector {
+
+    public enum Mode {
+        WARN, FAIL, OFF
+    }
+
+    private final EntityManagerFactory emf;
+    private final Mode mode;
+    private final int lazyLoadThreshold;
+    private final long statementThreshold;
+
+    //지연로딩 대상 엔티티 이름 -> 그 엔티티를 가리키는 연관관계들 (예: Team -> Member.team)
+    private final Map<String, String> associationsByTarget = new HashMap<>();
+
+    public NPlusOneDetector(EntityManagerFactory emf,
+                            @Value("${member.n-plus-one.mode:warn}") Mode mode,
+                            @Value("${member.n-plus-one.lazy-load-threshold:3}") int lazyLoadThreshold,
+                            @Value("${member.n-plus-one.statement-threshold:50}") long statementThreshold) {
+        this.emf = emf;
+        this.mode = mode;
+        this.lazyLoadThreshold = lazyLoadThreshold;
+        this.statementThreshold = statementThreshold;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        Map<String, List<String>> associations = new HashMap<>();
+        for (EntityType<?> entity : emf.getMetamodel().getEntities()) {
+            for (Attribute<?, ?> attribute : entity.getAttributes()) {
+                if (attribute.isAssociation() && attribute instanceof SingularAttribute) {
+                    associations.computeIfAbsent(attribute.getJavaType().getName(), k -> new ArrayList<>())
+                            .add(entity.getName() + "." + attribute.getName());
+                }
+            }
+        }
+        associations.forEach((target, names) -> associationsByTarget.put(target, String.join("|", names)));
+
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.prependListeners(EventType.LOAD, (LoadEventListener) this::beforeLoad);
+        registry.appendListeners(EventType.LOAD, (LoadEventListener) this::onLoad);
+        registry.prependListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) this::beforeInitializeCollection);
+        registry.appendListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) this::onInitializeCollection);
+    }
+
+    /**
+     * HTTP 요청 단위 스코프 (QueryScopeFilter에서 사용)
+     */
+    public QueryScope openScope(String name) {
+        return QueryScope.open(name);
+    }
+
+    public void closeScope(QueryScope scope) {
+        try {
+            long statements = scope.statements();
+            if (mode != Mode.OFF && statements > statementThreshold) {
+                report(scope.getName() + " 요청에서 SQL이 " + statements + "번 실행됨 (기준 " + statementThreshold
+                        + "), 마지막 레포지토리 호출: " + QueryScope.lastRepositoryCall());
+            }
+        } finally {
+            scope.close();
+        }
+    }
+
+    private void beforeLoad(LoadEvent event, LoadEventListener.LoadType loadType) {
+        //IMMEDIATE_LOAD는 프록시 초기화할때만 사용됨
+        if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+            beforeLazyLoad(event);
+        }
+    }
+
+    private void onLoad(LoadEvent event, LoadEventListener.LoadType loadType) {
+        if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+            String target = event.getEntityClassName();
+            lazyLoaded(event, associationsByTarget.getOrDefault(target, target));
+        }
+    }
+
+    private void beforeInitializeCollection(InitializeCollectionEvent event) {
+        beforeLazyLoad(event);
+    }
+
+    private void onInitializeCollection(InitializeCollectionEvent event) {
+        lazyLoaded(event, event.getCollection().getRole());
+    }
+
+    private void beforeLazyLoad(Object event) {
+        QueryScope scope = currentScope();
+        if (scope != null) {
+            scope.beforeLazyLoad(event);
+        }
+    }
+
+    private void lazyLoaded(Object event, String association) {
+        QueryScope scope = currentScope();
+        //2차 캐시에서 꺼낸 경우 (SQL이 나가지 않음)
+        if (scope == null || !scope.lazyLoadExecutedSql(event)) {
+            return;
+        }
+        int count = scope.lazyLoaded(association);
+        if (count >= lazyLoadThreshold && scope.markReported(association)) {
+            report("N+1 의심: " + association + " 지연로딩이 " + scope.getName() + " 안에서 " + count
+                    + "번 이상 발생함, 마지막 레포지토리 호출: " + QueryScope.lastRepositoryCall());
+        }
+    }
+
+    /**
+     * HTTP 요청 밖(테스트, 배치 등)에서는 트랜잭션이 끝날때까지를 하나의 스코프로 봄
+     */
+    private QueryScope currentScope() {
+        QueryScope scope = QueryScope.current();
+        if (scope != null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return scope;
+        }
+        QueryScope transactionScope = QueryScope.open("transaction");
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                transactionScope.close();
+            }
+        });
+        return transactionScope;
+    }
+
+    private void report(String message) {
+        if (mode == Mode.FAIL) {
+            throw new NPlusOneDetectedException(message);
+        }
+        if (mode == Mode.WARN) {
+            log.warn(message);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package study.querydslprac.metrics;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 요청(또는 트랜잭션) 하나 동안의 SQL/지연로딩 기록, 스레드에 묶여서 사용됨
+ * HTTP 요청은 QueryScopeFilter가 열고 닫음, 요청 밖에서는 NPlusOneDetector가 트랜잭션 단위로 열어줌
+ */
+public class QueryScope {
+
+    private static final ThreadLocal<QueryScope> CURRENT = new ThreadLocal<>();
+    //스코프가 없어도 마지막 레포지토리 호출은 기억해둠 (지연로딩 발생 위치 리포트용)
+    private static final ThreadLocal<String> LAST_REPOSITORY_CALL = new ThreadLocal<>();
+    //지금 실행중인 레포지토리 호출 (슬로우 쿼리 리포트용, RepositoryMetricsAspect가 설정)
+    private static final ThreadLocal<String> CURRENT_REPOSITORY_CALL = new ThreadLocal<>();
+
+    private final String name;
+    private final long statementsAtStart;
+    private final Map<String, Integer> lazyLoads = new HashMap<>();
+    private final Set<String> reported = new HashSet<>();
+    //초기화 이벤트 -> 초기화 시작 전 SQL 수 (같은 이벤트 객체가 기본 리스너 앞뒤의 리스너에 넘어옴)
+    private final Map<Object, Long> lazyLoadsInProgress = new IdentityHashMap<>();
+
+    private QueryScope(String name) {
+        this.name = name;
+        this.statementsAtStart = SqlStatementCounter.current();
+    }
+
+    static QueryScope open(String name) {
+        QueryScope scope = new QueryScope(name);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    static QueryScope current() {
+        return CURRENT.get();
+    }
+
+    static void lastRepositoryCall(String repositoryMethod) {
+        LAST_REPOSITORY_CALL.set(repositoryMethod);
+    }
+
+    static String lastRepositoryCall() {
+        return LAST_REPOSITORY_CALL.get();
+    }
+
+    /**
+     * @return 바깥 호출 (중첩 호출이 끝나면 exitRepositoryCall로 되돌려줘야 함)
+     */
+    static String enterRepositoryCall(String repositoryMethod) {
+        String outer = CURRENT_REPOSITORY_CALL.get();
+        CURRENT_REPOSITORY_CALL.set(repositoryMethod);
+        return outer;
+    }
+
+    static void exitRepositoryCall(String outer) {
+        if (outer == null) {
+            CURRENT_REPOSITORY_CALL.remove();
+        } else {
+            CURRENT_REPOSITORY_CALL.set(outer);
+        }
+    }
+
+    static String currentRepositoryCall() {
+        return CURRENT_REPOSITORY_CALL.get();
+    }
+
+    void close() {
+        CURRENT.remove();
+        LAST_REPOSITORY_CALL.remove();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long statements() {
+        return SqlStatementCounter.current() - statementsAtStart;
+    }
+
+    void beforeLazyLoad(Object event) {
+        lazyLoadsInProgress.put(event, SqlStatementCounter.current());
+    }
+
+    /**
+     * @return beforeLazyLoad 이후 이 스레드에서 SQL이 실행됐는지 (2차 캐시에서 꺼냈으면 false)
+     */
+    boolean lazyLoadExecutedSql(Object event) {
+        Long before = lazyLoadsInProgress.remove(event);
+        return before == null || SqlStatementCounter.current() > before;
+    }
+
+    /**
+     * @return 이번 스코프에서 해당 연관관계가 지연로딩된 횟수
+     */
+    int lazyLoaded(String association) {
+        return lazyLoads.merge(association, 1, Integer::sum);
+    }
+
+    /**
+     * 같은 연관관계는 스코프당 한번만 리포트
+     */
+    boolean markReported(String association) {
+        return reported.add(association);
+    }
+}
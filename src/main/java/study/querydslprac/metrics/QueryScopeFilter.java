@@ -0,0 +1,32 @@
+package study.querydslprac.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청마다 QueryScope를 열어서 N+1/SQL 수를 요청 단위로 셈
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryScopeFilter extends OncePerRequestFilter {
+
+    private final NPlusOneDetector nPlusOneDetector;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryScope scope = nPlusOneDetector.openScope(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            nPlusOneDetector.closeScope(scope);
+        }
+    }
+}
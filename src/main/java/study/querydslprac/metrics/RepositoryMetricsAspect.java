@@ -0,0 +1,107 @@
+package study.querydslprac.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydslprac.dto.CursorPage;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 레포지토리 public 메서드별 지표
+ * - repository.invocation : 지연시간 (p50/p95/p99 + 히스토그램)
+ * - repository.rows : 반환한 row 수
+ * - repository.sql.statements : 실행된 SQL 수 (p6spy, SqlStatementCounter)
+ * - repository.count.query : 페이징 메서드의 카운트 조회 실행/생략 (outcome=executed|skipped)
+ * 조회는 /metrics/repositories 또는 /actuator/metrics
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    static final String INVOCATION = "repository.invocation";
+    static final String ROWS = "repository.rows";
+    static final String SQL_STATEMENTS = "repository.sql.statements";
+    static final String COUNT_QUERY = "repository.count.query";
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(public * study.querydslprac.repository.MemberRepositoryImpl.*(..))" +
+            " || execution(public * study.querydslprac.repository.MemberJpaRepository.*(..))" +
+            " || execution(public * study.querydslprac.repository.MemberTestRepository.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+
+        long statementsBefore = SqlStatementCounter.current();
+        boolean previousCountFlag = CountQueryTracker.reset(false);
+        String outerCall = QueryScope.enterRepositoryCall(repository + "." + method);
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            record(repository, method, result, joinPoint);
+            return result;
+        } catch (Throwable t) {
+            exception = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            QueryScope.exitRepositoryCall(outerCall);
+            Timer.builder(INVOCATION)
+                    .tags("repository", repository, "method", method, "exception", exception)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meterRegistry.summary(SQL_STATEMENTS, "repository", repository, "method", method)
+                    .record(SqlStatementCounter.current() - statementsBefore);
+            //이후에 발생하는 지연로딩을 어떤 조회가 만든 엔티티인지 리포트하기 위해 기록 (NPlusOneDetector)
+            QueryScope.lastRepositoryCall(repository + "." + method);
+            boolean counted = CountQueryTracker.isExecuted();
+            //바깥 메서드 입장에서는 안쪽에서 카운트를 했으면 한 것
+            CountQueryTracker.reset(previousCountFlag || counted);
+        }
+    }
+
+    private void record(String repository, String method, Object result, ProceedingJoinPoint joinPoint) {
+        Long rows = rows(result);
+        if (rows != null) {
+            meterRegistry.summary(ROWS, "repository", repository, "method", method).record(rows);
+        }
+        if (isPageReturning(joinPoint)) {
+            meterRegistry.counter(COUNT_QUERY, "repository", repository, "method", method,
+                    "outcome", CountQueryTracker.isExecuted() ? "executed" : "skipped").increment();
+        }
+    }
+
+    private boolean isPageReturning(ProceedingJoinPoint joinPoint) {
+        Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getReturnType();
+        return Page.class.isAssignableFrom(returnType);
+    }
+
+    private Long rows(Object result) {
+        if (result instanceof Collection) {
+            return (long) ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return (long) ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof CursorPage) {
+            return (long) ((CursorPage<?>) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1L : 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,160 @@
+package study.querydslprac.metrics;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * p6spy 리스너, 기준 시간(member.slow-query.threshold)보다 오래 걸린 SQL만 기록함
+ * - 바인딩 값, 실행중이던 레포지토리 메서드(RepositoryMetricsAspect), HTTP 요청(QueryScopeFilter)을 같이 남김
+ * - select는 백그라운드 스레드에서 H2 EXPLAIN ANALYZE를 실행해서 결과를 붙임 (요청 스레드는 기다리지 않음)
+ *   EXPLAIN ANALYZE는 쿼리를 실제로 한번 더 실행하므로 select만 대상으로 하고, 대기열이 차면 건너뜀
+ * - 최근 member.slow-query.capacity건만 링 버퍼에 보관, /admin/slow-queries로 조회
+ */
+@Slf4j
+@Component
+public class SlowQueryLog extends SimpleJdbcEventListener {
+
+    //EXPLAIN 실행 스레드에서 나온 SQL은 다시 기록하지 않음
+    private static final ThreadLocal<Boolean> EXPLAINING = ThreadLocal.withInitial(() -> false);
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final boolean explainEnabled;
+    //DataSource를 직접 주입하면 p6spy 데코레이터(이 리스너를 사용함)와 순환 참조가 되므로 실행할때 꺼냄
+    private final ObjectProvider<DataSource> dataSource;
+
+    private final Deque<SlowQueryRecord> records = new ArrayDeque<>();
+    private final ThreadPoolExecutor explainExecutor;
+
+    public SlowQueryLog(@Value("${member.slow-query.threshold:200ms}") Duration threshold,
+                        @Value("${member.slow-query.capacity:100}") int capacity,
+                        @Value("${member.slow-query.explain:true}") boolean explainEnabled,
+                        ObjectProvider<DataSource> dataSource) {
+        this.thresholdNanos = threshold.toNanos();
+        this.capacity = capacity;
+        this.explainEnabled = explainEnabled;
+        this.dataSource = dataSource;
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(16), runnable -> {
+            Thread thread = new Thread(() -> {
+                EXPLAINING.set(true);
+                runnable.run();
+            }, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (timeElapsedNanos < thresholdNanos || EXPLAINING.get()) {
+            return;
+        }
+        String sql = statementInformation.getSql();
+        if (sql == null || sql.isBlank()) {
+            return;
+        }
+        String sqlWithValues = statementInformation.getSqlWithValues();
+        QueryScope scope = QueryScope.current();
+        SlowQueryRecord record = new SlowQueryRecord(
+                Instant.now(),
+                timeElapsedNanos / 1_000_000.0,
+                sql,
+                sqlWithValues,
+                QueryScope.currentRepositoryCall(),
+                scope != null ? scope.getName() : null,
+                Thread.currentThread().getName(),
+                e != null ? e.getMessage() : null);
+        add(record);
+
+        if (explainEnabled && e == null && isSelect(sql)) {
+            try {
+                explainExecutor.execute(() -> explain(record));
+            } catch (RejectedExecutionException ignored) {
+                //EXPLAIN이 밀려 있으면 이번 건은 건너뜀
+            }
+        }
+    }
+
+    /**
+     * 최근 기록 (최신순)
+     */
+    public List<SlowQueryRecord> recent() {
+        synchronized (records) {
+            List<SlowQueryRecord> result = new ArrayList<>(records.size());
+            records.descendingIterator().forEachRemaining(result::add);
+            return result;
+        }
+    }
+
+    public void clear() {
+        synchronized (records) {
+            records.clear();
+        }
+    }
+
+    public Duration getThreshold() {
+        return Duration.ofNanos(thresholdNanos);
+    }
+
+    private void add(SlowQueryRecord record) {
+        synchronized (records) {
+            if (records.size() == capacity) {
+                records.pollFirst();
+            }
+            records.addLast(record);
+        }
+    }
+
+    private void explain(SlowQueryRecord record) {
+        try (Connection connection = dataSource.getObject().getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setReadOnly(true);
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery("EXPLAIN ANALYZE " + record.getSqlWithValues())) {
+                while (resultSet.next()) {
+                    if (plan.length() > 0) {
+                        plan.append('\n');
+                    }
+                    plan.append(resultSet.getString(1));
+                }
+            }
+            record.setExplain(plan.toString());
+        } catch (SQLException | RuntimeException ex) {
+            log.debug("explain failed: {}", record.getSql(), ex);
+            record.setExplain("EXPLAIN 실패: " + ex.getMessage());
+        }
+    }
+
+    private static boolean isSelect(String sql) {
+        String trimmed = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return trimmed.startsWith("select") || trimmed.startsWith("with");
+    }
+}
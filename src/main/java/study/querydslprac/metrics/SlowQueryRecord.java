@@ -0,0 +1,40 @@
+package study.querydslprac.metrics;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * 슬로우 쿼리 한 건 (SlowQueryLog)
+ */
+@Getter
+public class SlowQueryRecord {
+
+    private final Instant executedAt;
+    private final double elapsedMs;
+    private final String sql;
+    //바인딩 값이 들어간 SQL
+    private final String sqlWithValues;
+    private final String repositoryMethod;
+    private final String endpoint;
+    private final String thread;
+    private final String error;
+    //EXPLAIN ANALYZE 결과, 백그라운드에서 채워짐 (select가 아니거나 아직 실행 전이면 null)
+    private volatile String explain;
+
+    SlowQueryRecord(Instant executedAt, double elapsedMs, String sql, String sqlWithValues,
+                    String repositoryMethod, String endpoint, String thread, String error) {
+        this.executedAt = executedAt;
+        this.elapsedMs = elapsedMs;
+        this.sql = sql;
+        this.sqlWithValues = sqlWithValues;
+        this.repositoryMethod = repositoryMethod;
+        this.endpoint = endpoint;
+        this.thread = thread;
+        this.error = error;
+    }
+
+    void setExplain(String explain) {
+        this.explain = explain;
+    }
+}
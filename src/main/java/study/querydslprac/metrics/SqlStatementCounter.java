@@ -0,0 +1,34 @@
+package study.querydslprac.metrics;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 리스너, 현재 스레드에서 실행된 SQL 수를 셈
+ * p6spy 스타터가 JdbcEventListener 빈을 자동으로 등록해줌
+ * 누적값만 들고 있고, 구간별 개수는 호출하는 쪽에서 전후 값의 차이로 구함
+ */
+@Component
+public class SqlStatementCounter extends SimpleJdbcEventListener {
+
+    private static final ThreadLocal<long[]> EXECUTED = ThreadLocal.withInitial(() -> new long[1]);
+
+    public static long current() {
+        return EXECUTED.get()[0];
+    }
+
+    /**
+     * 다른 스레드에서 대신 실행한 SQL을 현재 스레드 몫으로 더함 (ParallelCountExecutor 워커)
+     */
+    public static void add(long statements) {
+        EXECUTED.get()[0] += statements;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        EXECUTED.get()[0]++;
+    }
+}
@@ -0,0 +1,104 @@
+package study.querydslprac.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydslprac.dto.MemberBulkRow;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 대량 insert 전용 레포지토리
+ * em.persist는 row마다 insert 한번 + 영속성 컨텍스트에 엔티티가 계속 쌓이므로
+ * JDBC batch로 바로 넣음 (영속성 컨텍스트를 거치지 않으므로 flush/clear 할 것도 없음)
+ *
+ * 엔티티 리스너를 타지 않으므로 캐시 무효화 이벤트는 청크마다 직접 발행함
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberBulkRepository {
+
+    private static final String INSERT_MEMBER =
+            "insert into member (member_id, username, age, team_id) values (next value for hibernate_sequence, ?, ?, ?)";
+    private static final String INSERT_TEAM =
+            "insert into team (id, name) values (next value for hibernate_sequence, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final TeamRepository teamRepository;
+
+    /**
+     * 한 청크를 하나의 트랜잭션으로 저장
+     *
+     * @param teamIds 팀 이름 -> id, 이번 로딩 동안 계속 재사용하며 청크에서 처음 본 팀만 조회/생성해서 채워넣음
+     */
+    @Transactional
+    public int insertChunk(List<MemberBulkRow> rows, Map<String, Long> teamIds) {
+        resolveTeams(rows, teamIds);
+
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (MemberBulkRow row : rows) {
+            Long teamId = row.getTeamName() != null ? teamIds.get(row.getTeamName()) : null;
+            args.add(new Object[]{row.getUsername(), row.getAge(), teamId});
+        }
+        jdbcTemplate.batchUpdate(INSERT_MEMBER, args);
+
+        publisher.publishEvent(new EntityChangedEvent(Member.class, true));
+        return rows.size();
+    }
+
+    private void resolveTeams(List<MemberBulkRow> rows, Map<String, Long> teamIds) {
+        Set<String> unknown = new LinkedHashSet<>();
+        for (MemberBulkRow row : rows) {
+            if (row.getTeamName() != null && !teamIds.containsKey(row.getTeamName())) {
+                unknown.add(row.getTeamName());
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        //이미 있는 팀은 쿼리 캐시(TeamRepository)로 찾으므로 같은 팀 이름으로 여러번 로딩해도 팀 조회 SQL이 나가지 않음
+        for (String name : unknown) {
+            List<Team> teams = teamRepository.findByName(name);
+            if (!teams.isEmpty()) {
+                teamIds.put(name, teams.get(0).getId());
+            }
+        }
+        unknown.removeAll(teamIds.keySet());
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> newTeams = new ArrayList<>(unknown.size());
+        for (String name : unknown) {
+            newTeams.add(new Object[]{name});
+        }
+        jdbcTemplate.batchUpdate(INSERT_TEAM, newTeams);
+        //방금 넣은 팀은 쿼리 캐시에 없다고 남아있을 수 있으므로 JDBC로 직접 읽음
+        loadTeamIds(unknown, teamIds);
+        publisher.publishEvent(new EntityChangedEvent(Team.class, true));
+    }
+
+    private void loadTeamIds(Set<String> names, Map<String, Long> teamIds) {
+        //이름이 같은 팀이 여러개면 먼저 만들어진 팀을 사용 (TeamRepository.findByName도 id 순서)
+        namedParameterJdbcTemplate.query(
+                "select name, min(id) from team where name in (:names) group by name",
+                new MapSqlParameterSource("names", names),
+                rs -> {
+                    teamIds.put(rs.getString(1), rs.getLong(2));
+                });
+    }
+}
@@ -4,17 +4,36 @@ import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydslprac.dto.MemberSearchCondition;
 import study.querydslprac.dto.MemberTeamDto;
 import study.querydslprac.dto.QMemberTeamDto;
 import study.querydslprac.entity.Member;
 import study.querydslprac.entity.QTeam;
+import study.querydslprac.repository.cache.MemberSearchCache;
+import study.querydslprac.repository.cache.MemberSearchKey;
+import study.querydslprac.repository.index.MemberUsernameIndex;
+import study.querydslprac.repository.support.MemberSearchTemplates;
+import study.querydslprac.repository.support.PersistenceContexts;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydslprac.entity.QMember.member;
@@ -23,36 +42,100 @@ import static study.querydslprac.entity.QTeam.team;
 @Repository
 public class MemberJpaRepository {
 
+    //스트리밍 조회시 JDBC 드라이버가 한번에 가져올 row 수
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    //findAllByIds에서 in 절 하나에 넣는 최대 id 수 (2의 거듭제곱, 나머지 조각은 하이버네이트가 2의 거듭제곱으로 채움)
+    private static final int IN_CHUNK_SIZE = 512;
+
     private final EntityManager em;
     private final JPAQueryFactory jpaQueryFactory;
+    private final MemberSearchCache searchCache;
+    private final MemberUsernameIndex usernameIndex;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, MemberSearchCache searchCache, MemberUsernameIndex usernameIndex) {
         this.em = em;
         this.jpaQueryFactory = new JPAQueryFactory(em);
+        this.searchCache = searchCache;
+        this.usernameIndex = usernameIndex;
     }
 
     public void save(Member member) {
         em.persist(member);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
 
+    /**
+     * 여러 id를 한번에 조회 (findById를 id마다 호출하는 대신)
+     * - 중복 id는 한번만 조회하고, 결과는 처음 나온 순서대로 돌려줌 (없는 id는 빠짐)
+     * - 이미 영속성 컨텍스트에 있는 회원은 조회하지 않음 (삭제 예정인 회원은 빠짐)
+     * - 나머지는 IN_CHUNK_SIZE개씩 나눠서 팀과 fetch join으로 조회
+     *   in 절 파라미터 수는 hibernate.query.in_clause_parameter_padding으로 2의 거듭제곱으로 맞춰져서 쿼리 플랜 캐시를 재사용함
+     */
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        PersistenceContext persistenceContext = session.getPersistenceContext();
+
+        Map<Long, Member> found = new HashMap<>(uniqueIds.size() * 2);
+        List<Long> toLoad = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            Object entity = persistenceContext.getEntity(session.generateEntityKey(id, persister));
+            if (entity == null) {
+                toLoad.add(id);
+                continue;
+            }
+            Status status = persistenceContext.getEntry(entity).getStatus();
+            if (status != Status.DELETED && status != Status.GONE) {
+                found.put(id, (Member) entity);
+            }
+        }
+
+        for (int from = 0; from < toLoad.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = toLoad.subList(from, Math.min(from + IN_CHUNK_SIZE, toLoad.size()));
+            List<Member> members = jpaQueryFactory
+                    .selectFrom(member)
+                    .leftJoin(member.team, team).fetchJoin()
+                    .where(member.id.in(chunk))
+                    .fetch();
+            for (Member loaded : members) {
+                found.put(loaded.getId(), loaded);
+            }
+        }
+
+        List<Member> result = new ArrayList<>(found.size());
+        for (Long id : uniqueIds) {
+            Member findMember = found.get(id);
+            if (findMember != null) {
+                result.add(findMember);
+            }
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl() {
         return jpaQueryFactory
                 .selectFrom(member)
                 .fetch();
     }
 
+    //회원명 인덱스로 찾음, 인덱스를 쓸 수 없으면 member.username.eq(username)로 조회 (MemberUsernameIndex.findMembers)
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username) {
-        return jpaQueryFactory
-                .selectFrom(member)
-                .where(member.username.eq(username))
-                .fetch();
+        return usernameIndex.findMembers(username);
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
 
         BooleanBuilder builder = new BooleanBuilder();
@@ -82,8 +165,31 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return jpaQueryFactory
+        //쓰기 가능한 트랜잭션은 flush된 커밋 전 row를 볼 수 있으므로 캐시를 거치지 않음 (WriteInvalidatedCache.isBypassed)
+        if (PersistenceContexts.hasPendingChanges(em) || searchCache.isBypassed()) {
+            return searchQuery(condition);
+        }
+        return searchCache.get(MemberSearchKey.of(condition), () -> searchQuery(condition));
+    }
+
+    //16가지 where 모양별로 미리 만들어둔 JPQL에 파라미터만 바인딩 (쿼리 자체는 searchByBuilder/where 파라미터 방식과 같음)
+    private List<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
+        return MemberSearchTemplates.search(em, condition);
+    }
+
+    /**
+     * search와 같은 조건/프로젝션이지만 List로 모으지 않고 한 row씩 consumer에 넘겨줌
+     * DTO 프로젝션이라 영속성 컨텍스트에 엔티티가 쌓이지 않으므로 detach 할 대상이 없음
+     * 커서가 열려있는 동안 커넥션을 잡고 있어야 하므로 트랜잭션 안에서 실행함
+     *
+     * @return consumer에 넘겨준 row 수
+     */
+    @Transactional(readOnly = true)
+    public long searchStream(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer) {
+        long count = 0;
+        try (Stream<MemberTeamDto> stream = jpaQueryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -98,9 +204,19 @@ public class MemberJpaRepository {
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .fetch();
+                .orderBy(member.id.asc())
+                .setHint(QueryHints.FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.READ_ONLY, true)
+                .stream()) {
+            for (MemberTeamDto dto : (Iterable<MemberTeamDto>) stream::iterator) {
+                consumer.accept(dto);
+                count++;
+            }
+        }
+        return count;
     }
 
+    @Transactional(readOnly = true)
     public List<Member> searchMember(MemberSearchCondition condition) {
         return jpaQueryFactory
                 .selectFrom(member)
@@ -5,11 +5,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import study.querydslprac.entity.Member;
 
-import java.util.List;
-
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
 
-    //select m from Member m where m.username = :username;
-    List<Member> findByUsername(String username);
+    //findByUsername은 쿼리 메서드 대신 회원명 인덱스로 구현 (MemberRepositoryImpl)
 
 }
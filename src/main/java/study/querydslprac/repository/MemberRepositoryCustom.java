@@ -2,13 +2,29 @@ package study.querydslprac.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import study.querydslprac.dto.CursorPage;
+import study.querydslprac.dto.MemberField;
 import study.querydslprac.dto.MemberSearchCondition;
 import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.entity.Member;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    List<Map<String, Object>> searchFields(MemberSearchCondition condition, Set<MemberField> fields);
+    Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Set<MemberField> fields, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    CursorPage<MemberTeamDto> searchByCursor(MemberSearchCondition condition, String cursor, int size);
+    CursorPage<MemberTeamDto> searchByCursor(MemberSearchCondition condition, Sort sort, String cursor, int size);
+    List<Member> findByUsername(String username);
+    List<String> autocompleteUsername(String prefix, int limit);
+    long bulkIncrementAge(MemberSearchCondition condition, int delta);
+    long bulkDeleteByCondition(MemberSearchCondition condition);
 }
@@ -1,22 +1,52 @@
 package study.querydslprac.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.dto.CursorPage;
+import study.querydslprac.dto.MemberField;
 import study.querydslprac.dto.MemberSearchCondition;
 import study.querydslprac.dto.MemberTeamDto;
 import study.querydslprac.dto.QMemberTeamDto;
 import study.querydslprac.entity.Member;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+import study.querydslprac.metrics.CountQueryTracker;
+import study.querydslprac.repository.cache.MemberCountCache;
+import study.querydslprac.repository.cache.MemberSearchCache;
+import study.querydslprac.repository.cache.MemberSearchKey;
+import study.querydslprac.repository.index.MemberUsernameIndex;
+import study.querydslprac.repository.support.MemberCursor;
+import study.querydslprac.repository.support.MemberSearchTemplates;
+import study.querydslprac.repository.support.ParallelCountExecutor;
+import study.querydslprac.repository.support.PersistenceContexts;
+import study.querydslprac.repository.support.Querydsl4RepositorySupport;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydslprac.entity.QMember.member;
@@ -25,11 +55,38 @@ import static study.querydslprac.entity.QTeam.team;
 //MemberRepository라는 이름 뒤에 Imple을 붙여줘야함 (규칙임)
 public class MemberRepositoryImpl  implements MemberRepositoryCustom {
 
+    //searchSlice 정렬 속성 (MemberTeamDto 필드명 -> 경로)
+    private static final Map<String, ComparableExpressionBase<?>> SLICE_SORTABLE = Map.of(
+            "memberId", member.id,
+            "username", member.username,
+            "age", member.age,
+            "teamId", team.id,
+            "teamName", team.name);
 
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberCountCache countCache;
+    private final MemberSearchCache searchCache;
+    private final ParallelCountExecutor parallelCountExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final MemberUsernameIndex usernameIndex;
+    private final int bulkChunkSize;
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, MemberCountCache countCache, MemberSearchCache searchCache,
+                                ParallelCountExecutor parallelCountExecutor, TransactionTemplate transactionTemplate,
+                                ApplicationEventPublisher publisher, MemberUsernameIndex usernameIndex,
+                                @Value("${member.bulk.update-chunk-size:1000}") int bulkChunkSize) {
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.searchCache = searchCache;
+        this.parallelCountExecutor = parallelCountExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.publisher = publisher;
+        this.usernameIndex = usernameIndex;
+        this.bulkChunkSize = bulkChunkSize;
     }
 
     //QuerydslRepositorySupport를 사용시 내부적으로 entityManager가 구현 되어 있음
@@ -38,7 +95,7 @@ public class MemberRepositoryImpl  implements MemberRepositoryCustom {
 //    }
 
     @Override
-
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
 
 //        List<MemberTeamDto> result = from(member)
@@ -57,47 +114,29 @@ public class MemberRepositoryImpl  implements MemberRepositoryCustom {
 //                        team.name.as("teamName")))
 //                .fetch();
 
+        //쓰기 가능한 트랜잭션은 flush된 커밋 전 row를 볼 수 있으므로 캐시를 거치지 않음 (WriteInvalidatedCache.isBypassed)
+        if (PersistenceContexts.hasPendingChanges(em) || searchCache.isBypassed()) {
+            return searchQuery(condition);
+        }
+        return searchCache.get(MemberSearchKey.of(condition), () -> searchQuery(condition));
+    }
 
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+    //16가지 where 모양별로 미리 만들어둔 JPQL에 파라미터만 바인딩 (쿼리 자체는 searchByBuilder/where 파라미터 방식과 같음)
+    private List<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
+        return MemberSearchTemplates.search(em, condition);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> result = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+        QueryResults<MemberTeamDto> result = searchBase(condition)
                 //몇번째를 스킵하고 몇번부터 시작할꺼냐
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetchResults();
 
+        //fetchResults는 항상 카운트쿼리를 같이 날림
+        CountQueryTracker.executed();
         List<MemberTeamDto> content = result.getResults();
         long total = result.getTotal();
         return new PageImpl<>(content, pageable, total);
@@ -131,37 +170,34 @@ public class MemberRepositoryImpl  implements MemberRepositoryCustom {
 //    }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
-
         //카운트쿼리는 따로 빠져야함
         JPAQuery<Long> countQuery = queryFactory
                 .select(member.count())
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+                .where(searchCondition(condition));
+
+        //병렬 모드면 컨텐츠를 가져오는 동안 다른 커넥션에서 카운트를 먼저 시작해둠 (캐시에 있으면 안함)
+        ParallelCountExecutor.CountFuture parallelCount =
+                parallelCountExecutor.isAvailable() && countCache.getIfPresent(MemberSearchKey.of(condition)) == null
+                        ? parallelCountExecutor.submit(countQuery::fetchOne)
+                        : null;
+        if (parallelCount != null) {
+            try {
+                List<MemberTeamDto> content = searchPageContent(condition, pageable);
+                return PageableExecutionUtils.getPage(content, pageable, () -> {
+                    CountQueryTracker.executed();
+                    return countCache.get(MemberSearchKey.of(condition), parallelCount::await);
+                });
+            } finally {
+                //카운트가 필요 없었거나 컨텐츠 조회가 실패한 경우 실행중인 카운트를 취소
+                parallelCount.cancel();
+            }
+        }
+
+        List<MemberTeamDto> content = searchPageContent(condition, pageable);
 
         /**
          * PageableExcutionUtils.getPage의 구동 방식
@@ -170,8 +206,381 @@ public class MemberRepositoryImpl  implements MemberRepositoryCustom {
          *
          * 상기 조건일때 3번째 매개변수인 countQuery::fetchOne부분이 실행 되지 않음
          * 따라서, 불필요한 쿼리를 최소화하여 성능 향상을 기대할 수 있음음         */
+        //카운트가 필요한 경우에도 캐시에 있으면 카운트쿼리를 날리지 않음
         return PageableExecutionUtils.getPage(content, pageable,
-                countQuery::fetchOne);
+                () -> cachedCount(condition, countQuery));
+    }
+
+    /**
+     * search와 같은 조건으로 fields에 있는 컬럼만 조회
+     * teamName을 고르지 않았고 팀명 조건도 없으면 팀 조인을 하지 않음
+     * 결과는 row마다 고른 필드만 담은 map (fieldName -> 값)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, Set<MemberField> fields) {
+        return toFieldMaps(fields, sparseQuery(condition, fields).fetch());
+    }
+
+    /**
+     * searchPageComplex의 sparse 버전, 카운트도 팀명 조건이 없으면 조인 없이 셈
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Set<MemberField> fields,
+                                                      Pageable pageable) {
+        List<Tuple> content = sparseQuery(condition, fields)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member);
+        if (hasText(condition.getTeamName())) {
+            countQuery.leftJoin(member.team, team);
+        }
+        countQuery.where(searchCondition(condition));
+
+        return PageableExecutionUtils.getPage(toFieldMaps(fields, content), pageable,
+                () -> cachedCount(condition, countQuery));
+    }
+
+    private JPAQuery<Tuple> sparseQuery(MemberSearchCondition condition, Set<MemberField> fields) {
+        JPAQuery<Tuple> query = queryFactory
+                .select(fields.stream().map(MemberField::getExpression).toArray(Expression[]::new))
+                .from(member);
+        boolean teamJoinRequired = hasText(condition.getTeamName())
+                || fields.stream().anyMatch(MemberField::isTeamJoinRequired);
+        if (teamJoinRequired) {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(searchCondition(condition));
+    }
+
+    private static List<Map<String, Object>> toFieldMaps(Set<MemberField> fields, List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (MemberField field : fields) {
+                row.put(field.getFieldName(), tuple.get(field.getExpression()));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private List<MemberTeamDto> searchPageContent(MemberSearchCondition condition, Pageable pageable) {
+        return searchBase(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+    }
+
+    //쓰기 가능한 트랜잭션 안에서는 flush된 커밋 전 row까지 세므로 캐시를 거치지 않음 (WriteInvalidatedCache.isBypassed)
+    private long cachedCount(MemberSearchCondition condition, JPAQuery<Long> countQuery) {
+        CountQueryTracker.executed();
+        if (PersistenceContexts.hasPendingChanges(em) || countCache.isBypassed()) {
+            return countQuery.fetchOne();
+        }
+        return countCache.get(MemberSearchKey.of(condition), countQuery::fetchOne);
+    }
+
+    /**
+     * 카운트 없는 페이징, 무한 스크롤처럼 전체 건수가 필요 없는 경우
+     * limit + 1건을 조회해서 다음 페이지가 있는지만 판단함
+     * 페이지마다 같은 순서가 나오도록 정렬이 없으면 member_id 순으로 정렬함
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = searchBase(condition)
+                .orderBy(sliceOrder(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1L)
+                .fetch();
+        return Querydsl4RepositorySupport.toSlice(content, pageable);
+    }
+
+    /**
+     * MemberTeamDto 필드명으로만 정렬할 수 있음 (그 외 속성은 JPQL이 깨지므로 IllegalArgumentException)
+     * 정렬키가 같은 row의 순서가 페이지마다 달라지지 않도록 member_id를 마지막 정렬로 붙임
+     */
+    private OrderSpecifier<?>[] sliceOrder(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            ComparableExpressionBase<?> path = SLICE_SORTABLE.get(order.getProperty());
+            if (path == null) {
+                throw new IllegalArgumentException("정렬할 수 없는 속성입니다: " + order.getProperty());
+            }
+            OrderSpecifier<?> specifier = order.isAscending() ? path.asc() : path.desc();
+            if (order.getNullHandling() == Sort.NullHandling.NULLS_FIRST) {
+                specifier = specifier.nullsFirst();
+            } else if (order.getNullHandling() == Sort.NullHandling.NULLS_LAST) {
+                specifier = specifier.nullsLast();
+            }
+            orders.add(specifier);
+            byId |= path == member.id;
+        }
+        if (!byId) {
+            orders.add(member.id.asc());
+        }
+        return orders.toArray(new OrderSpecifier<?>[0]);
+    }
+
+    /**
+     * keyset(seek) 페이징
+     * offset 방식은 앞 페이지의 row를 전부 읽고 버리기 때문에 뒤로 갈수록 느려짐
+     * 마지막으로 본 (정렬키, member_id) 이후부터 인덱스로 바로 찾아가므로 몇번째 페이지든 비용이 같음
+     * hasNext 판단을 위해 size + 1건을 조회하고 카운트쿼리는 날리지 않음
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<MemberTeamDto> searchByCursor(MemberSearchCondition condition, String cursor, int size) {
+        return searchByCursor(condition, Sort.unsorted(), cursor, size);
+    }
+
+    /**
+     * sort는 memberId, username, age 중 하나 (없으면 memberId 오름차순)
+     * 커서가 있으면 커서를 만들 때의 정렬을 그대로 쓰고, 다른 정렬을 같이 넘기면 IllegalArgumentException
+     * username은 null이 있을 수 있어서 오름차순은 null이 먼저, 내림차순은 null이 나중에 옴
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<MemberTeamDto> searchByCursor(MemberSearchCondition condition, Sort sort, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size는 1 이상이어야 합니다.");
+        }
+        MemberCursor last = MemberCursor.decode(cursor);
+        if (last != null && !last.matches(sort)) {
+            throw new IllegalArgumentException("커서를 만든 정렬과 요청한 정렬이 다릅니다: " + sort);
+        }
+        Sort.Order order = last != null ? last.toOrder() : MemberCursor.order(sort);
+        MemberCursor.SortKey sortKey = MemberCursor.SortKey.of(order.getProperty());
+
+        List<MemberTeamDto> content = searchBase(condition)
+                .where(cursorAfter(last))
+                .orderBy(cursorOrder(sortKey, order.isDescending()))
+                .limit(size + 1)
+                .fetch();
+
+        if (content.size() <= size) {
+            return new CursorPage<>(content, null);
+        }
+        List<MemberTeamDto> page = content.subList(0, size);
+        return new CursorPage<>(page, MemberCursor.encode(order, page.get(size - 1)));
+    }
+
+    //정렬키가 같으면 member_id로 순서를 정함 (idx_member_username, idx_member_age 인덱스도 같은 키끼리는 PK 순서)
+    private OrderSpecifier<?>[] cursorOrder(MemberCursor.SortKey sortKey, boolean descending) {
+        Order direction = descending ? Order.DESC : Order.ASC;
+        OrderSpecifier<Long> byId = new OrderSpecifier<>(direction, member.id);
+        switch (sortKey) {
+            case USERNAME:
+                OrderSpecifier<String> byUsername = new OrderSpecifier<>(direction, member.username);
+                return new OrderSpecifier<?>[]{descending ? byUsername.nullsLast() : byUsername.nullsFirst(), byId};
+            case AGE:
+                return new OrderSpecifier<?>[]{new OrderSpecifier<>(direction, member.age), byId};
+            default:
+                return new OrderSpecifier<?>[]{byId};
+        }
+    }
+
+    //(정렬키, member_id)가 커서보다 뒤인 row, 정렬키가 같은 row는 member_id로 이어서 읽음
+    private BooleanExpression cursorAfter(MemberCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        boolean desc = cursor.isDescending();
+        Long lastId = cursor.getLastMemberId();
+        BooleanExpression idAfter = desc ? member.id.lt(lastId) : member.id.gt(lastId);
+        switch (cursor.getSortKey()) {
+            case USERNAME: {
+                String lastUsername = cursor.getLastValue();
+                if (lastUsername == null) {
+                    //null은 오름차순이면 맨 앞, 내림차순이면 맨 뒤
+                    BooleanExpression nullAfter = member.username.isNull().and(idAfter);
+                    return desc ? nullAfter : nullAfter.or(member.username.isNotNull());
+                }
+                BooleanExpression after = (desc ? member.username.lt(lastUsername) : member.username.gt(lastUsername))
+                        .or(member.username.eq(lastUsername).and(idAfter));
+                return desc ? after.or(member.username.isNull()) : after;
+            }
+            case AGE: {
+                int lastAge = Integer.parseInt(cursor.getLastValue());
+                return (desc ? member.age.lt(lastAge) : member.age.gt(lastAge))
+                        .or(member.age.eq(lastAge).and(idAfter));
+            }
+            default:
+                return idAfter;
+        }
+    }
+
+    /**
+     * 회원명 인덱스(MemberUsernameIndex)로 찾음, 없는 회원명이면 SQL을 날리지 않음
+     * 인덱스가 준비되지 않았거나 이 트랜잭션에 반영 안된 변경이 있으면 DB로 조회
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Member> findByUsername(String username) {
+        return usernameIndex.findMembers(username);
+    }
+
+    /**
+     * prefix로 시작하는 회원명 (중복 제거, 정렬, 최대 limit개)
+     * 인덱스가 준비되기 전에는 like 'prefix%' 로 조회
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> autocompleteUsername(String prefix, int limit) {
+        if (!usernameIndex.isReady()) {
+            return queryFactory
+                    .select(member.username).distinct()
+                    .from(member)
+                    .where(member.username.startsWith(prefix))
+                    .orderBy(member.username.asc())
+                    .limit(limit)
+                    .fetch();
+        }
+        return usernameIndex.autocomplete(prefix, limit);
+    }
+
+    /**
+     * 조건에 맞는 회원 나이를 delta만큼 더함
+     * @return 변경된 row 수
+     */
+    @Override
+    public long bulkIncrementAge(MemberSearchCondition condition, int delta) {
+        return executeInChunks(condition, (from, to) -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(bulkWhere(condition, from, to))
+                .execute());
+    }
+
+    /**
+     * @return 삭제된 row 수
+     */
+    @Override
+    public long bulkDeleteByCondition(MemberSearchCondition condition) {
+        return executeInChunks(condition, (from, to) -> queryFactory
+                .delete(member)
+                .where(bulkWhere(condition, from, to))
+                .execute());
+    }
+
+    /**
+     * 벌크 연산을 조건에 맞는 member_id bulk.update-chunk-size개씩 끊어서 실행
+     * 구간마다 트랜잭션을 따로 잡아서 락을 잡고 있는 시간과 undo 크기를 줄임
+     * (이미 트랜잭션 안에서 호출되면 그 트랜잭션에 참여하므로 한번에 커밋됨)
+     *
+     * 구간 경계는 min~max를 고정 크기로 나누지 않고, 직전 구간 다음부터 조건에 맞는 id를 chunk개 읽어서 그 마지막 id로 정함
+     * id가 듬성듬성해도(삭제, 시퀀스 건너뜀) 빈 구간에 update/delete와 트랜잭션을 날리지 않음
+     *
+     * 벌크 연산은 영속성 컨텍스트를 거치지 않으므로 구간마다
+     * 실행 전에 flush, 실행 후에 해당 구간의 Member 엔티티를 detach 해서 옛날 값이 보이지 않게 함
+     */
+    private long executeInChunks(MemberSearchCondition condition, BulkClause clause) {
+        long total = 0;
+        Long lastId = null;
+        while (true) {
+            Long chunkLastId = nextChunkLastId(condition, lastId);
+            if (chunkLastId == null) {
+                return total;
+            }
+            //[chunkFrom, chunkTo) 구간
+            long chunkFrom = lastId != null ? lastId + 1 : Long.MIN_VALUE;
+            long chunkTo = chunkLastId + 1;
+            Long changed = transactionTemplate.execute(status -> {
+                em.flush();
+                long rows = clause.execute(chunkFrom, chunkTo);
+                detachMembers(chunkFrom, chunkTo);
+                if (rows > 0) {
+                    publisher.publishEvent(new EntityChangedEvent(Member.class, true));
+                }
+                return rows;
+            });
+            total += changed != null ? changed : 0;
+            lastId = chunkLastId;
+        }
+    }
+
+    /**
+     * lastId 다음부터 조건에 맞는 id를 bulkChunkSize개 읽었을때 마지막 id (더 없으면 null)
+     * PK 순서로 id만 가져옴
+     */
+    private Long nextChunkLastId(MemberSearchCondition condition, Long lastId) {
+        List<Long> ids = queryFactory
+                .select(member.id)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(searchCondition(condition))
+                .where(lastId != null ? member.id.gt(lastId) : null)
+                .orderBy(member.id.asc())
+                .limit(bulkChunkSize)
+                .fetch();
+        return ids.isEmpty() ? null : ids.get(ids.size() - 1);
+    }
+
+    private void detachMembers(long from, long to) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        List<Object> targets = new ArrayList<>();
+        for (Object entity : session.getPersistenceContext().getEntitiesByKey().values()) {
+            if (entity instanceof Member) {
+                Long id = ((Member) entity).getId();
+                if (id != null && id >= from && id < to) {
+                    targets.add(entity);
+                }
+            }
+        }
+        targets.forEach(em::detach);
+    }
+
+    //벌크 update/delete는 조인을 쓸 수 없으므로 팀 이름 조건은 서브쿼리로 바꿈
+    private BooleanExpression[] bulkWhere(MemberSearchCondition condition, long from, long to) {
+        return new BooleanExpression[]{
+                member.id.goe(from),
+                member.id.lt(to),
+                usernameEq(condition.getUsername()),
+                hasText(condition.getTeamName())
+                        ? member.team.id.in(JPAExpressions
+                                .select(team.id)
+                                .from(team)
+                                .where(team.name.eq(condition.getTeamName())))
+                        : null,
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    @FunctionalInterface
+    private interface BulkClause {
+        long execute(long from, long to);
+    }
+
+    //search 계열 공통 (회원 + 팀 프로젝션, 팀 left join, 검색 조건), 정렬/페이징은 호출하는 쪽에서 붙임
+    private JPAQuery<MemberTeamDto> searchBase(MemberSearchCondition condition) {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(searchCondition(condition));
+    }
+
+    //null인 조건은 where에서 무시됨, 팀명 조건은 팀 join이 필요함
+    private BooleanExpression[] searchCondition(MemberSearchCondition condition) {
+        return new BooleanExpression[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
     }
 
     private BooleanExpression usernameEq(String username) {
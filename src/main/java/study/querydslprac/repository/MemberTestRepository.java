@@ -4,10 +4,15 @@ import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.dto.QMemberTeamDto;
 import study.querydslprac.entity.Member;
+import study.querydslprac.metrics.CountQueryTracker;
 import study.querydslprac.repository.support.Querydsl4RepositorySupport;
 
 import java.util.List;
@@ -17,6 +22,7 @@ import static study.querydslprac.entity.QMember.member;
 import static study.querydslprac.entity.QTeam.team;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
     public MemberTestRepository() {
@@ -46,7 +52,10 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
 
         List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
 
-        return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            CountQueryTracker.executed();
+            return query.fetchCount();
+        });
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
@@ -79,6 +88,55 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
         );
     }
 
+    //카운트 없이 다음 페이지 여부만 (applySlicePagination)
+    public Slice<Member> applySlicePagination(MemberSearchCondition condition, Pageable pageable) {
+        return applySlicePagination(pageable, query -> query
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                ));
+    }
+
+    /**
+     * 지연 조인 페이징, id 페이지를 먼저 구하고 그 id들만 팀과 조인해서 DTO로 만듦
+     * 팀 조건이 없으면 1단계에서는 팀 조인도 하지 않음
+     */
+    public Page<MemberTeamDto> searchPageByDeferredJoin(MemberSearchCondition condition, Pageable pageable) {
+        return applyDeferredJoinPagination(pageable,
+                idQuery -> {
+                    JPAQuery<Long> query = idQuery.select(member.id).from(member);
+                    if (hasText(condition.getTeamName())) {
+                        query.leftJoin(member.team, team);
+                    }
+                    return query.where(usernameEq(condition.getUsername()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe()));
+                },
+                (hydrateQuery, ids) -> hydrateQuery
+                        .select(new QMemberTeamDto(
+                                member.id.as("memberId"),
+                                member.username,
+                                member.age,
+                                team.id.as("teamId"),
+                                team.name.as("teamName")))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(member.id.in(ids)),
+                MemberTeamDto::getMemberId,
+                countQuery -> countQuery
+                        .select(member.id)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())));
+    }
+
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null ;
     }
@@ -0,0 +1,36 @@
+package study.querydslprac.repository;
+
+import org.springframework.stereotype.Repository;
+import study.querydslprac.entity.Team;
+import study.querydslprac.repository.support.Querydsl4RepositorySupport;
+
+import java.util.List;
+
+import static study.querydslprac.entity.QTeam.team;
+
+/**
+ * 팀 조회, 팀은 2차 캐시 대상이므로 조회 쿼리도 쿼리 캐시를 사용함
+ * 쿼리 캐시 결과는 팀 전용 리전(QUERY_REGION)에 두어서 회원 벌크 쓰기로는 비워지지 않게 함
+ */
+@Repository
+public class TeamRepository extends Querydsl4RepositorySupport {
+
+    public static final String QUERY_REGION = "study.querydslprac.repository.TeamRepository";
+
+    public TeamRepository() {
+        super(Team.class);
+    }
+
+    public List<Team> findAll() {
+        return cacheable(selectFrom(team)
+                .orderBy(team.id.asc()), QUERY_REGION)
+                .fetch();
+    }
+
+    public List<Team> findByName(String name) {
+        return cacheable(selectFrom(team)
+                .where(team.name.eq(name))
+                .orderBy(team.id.asc()), QUERY_REGION)
+                .fetch();
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydslprac.repository.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * searchPageComplex 카운트쿼리 결과 캐시
+ * Member/Team에 쓰기가 생기면 조건과 상관없이 전부 비움 (어떤 조건의 카운트가 바뀌는지 따지는 것보다 싸고 안전함)
+ * 쓰기 가능한 트랜잭션 안에서 센 카운트는 커밋 전 row가 포함될 수 있으므로 캐시에 넣지 않음
+ */
+@Component
+public class MemberCountCache {
+
+    private final WriteInvalidatedCache<MemberSearchKey, Long> cache;
+
+    public MemberCountCache(@Value("${member.count-cache.max-size:1000}") int maxSize,
+                            @Value("${member.count-cache.ttl:30s}") Duration ttl) {
+        this.cache = new WriteInvalidatedCache<>(maxSize, ttl);
+    }
+
+    public long get(MemberSearchKey key, Supplier<Long> countQuery) {
+        Long count = cache.get(key, countQuery);
+        return count != null ? count : 0L;
+    }
+
+    public Long getIfPresent(MemberSearchKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    public boolean isBypassed() {
+        return cache.isBypassed();
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        cache.invalidateAll();
+    }
+
+    public WriteInvalidatedCache<MemberSearchKey, Long> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydslprac.repository.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * search(MemberSearchCondition) 결과 캐시
+ * MemberRepositoryImpl, MemberJpaRepository의 search는 같은 쿼리이므로 하나의 캐시를 같이 씀
+ *
+ * 쓰기 가능한 트랜잭션 안에서 조회한 결과는 커밋 전 row가 포함될 수 있으므로 캐시에 넣지 않음
+ *
+ * 캐시된 리스트는 수정할 수 없고 안에 든 DTO는 호출한 쪽끼리 공유되므로 꺼내서 값을 바꾸면 안됨
+ */
+@Component
+public class MemberSearchCache {
+
+    private final WriteInvalidatedCache<MemberSearchKey, List<MemberTeamDto>> cache;
+
+    public MemberSearchCache(@Value("${member.search-cache.max-size:256}") int maxSize,
+                             @Value("${member.search-cache.ttl:5m}") Duration ttl) {
+        this.cache = new WriteInvalidatedCache<>(maxSize, ttl);
+    }
+
+    public List<MemberTeamDto> get(MemberSearchKey key, Supplier<List<MemberTeamDto>> searchQuery) {
+        return cache.get(key, () -> List.copyOf(searchQuery.get()));
+    }
+
+    public boolean isBypassed() {
+        return cache.isBypassed();
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        cache.invalidateAll();
+    }
+
+    public WriteInvalidatedCache<MemberSearchKey, List<MemberTeamDto>> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,37 @@
+package study.querydslprac.repository.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import study.querydslprac.dto.MemberSearchCondition;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberSearchCondition을 캐시키로 쓰기 위해 정규화한 값
+ * where 파라미터 메서드(usernameEq 등)와 똑같이 빈 문자열은 조건 없음(null)으로 취급함
+ * MemberSearchCondition은 @Data라 변경 가능하므로 키로 직접 쓰지 않음
+ */
+@EqualsAndHashCode
+@ToString
+public final class MemberSearchKey {
+
+    private final String username;
+    private final String teamName;
+    private final Integer ageGoe;
+    private final Integer ageLoe;
+
+    private MemberSearchKey(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        this.username = username;
+        this.teamName = teamName;
+        this.ageGoe = ageGoe;
+        this.ageLoe = ageLoe;
+    }
+
+    public static MemberSearchKey of(MemberSearchCondition condition) {
+        return new MemberSearchKey(
+                hasText(condition.getUsername()) ? condition.getUsername() : null,
+                hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                condition.getAgeGoe(),
+                condition.getAgeLoe());
+    }
+}
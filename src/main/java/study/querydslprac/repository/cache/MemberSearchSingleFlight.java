@@ -0,0 +1,87 @@
+package study.querydslprac.repository.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydslprac.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MemberRepositoryImpl.search / searchPageComplex 앞에서 동시에 들어온 같은 조회를 한번만 실행함
+ * 키는 정규화한 검색 조건(MemberSearchKey) + Pageable (페이지, 크기, 정렬) + member/team 테이블 버전(TableVersions)
+ * 버전은 커밋 후에 올라가므로, 자기 쓰기를 커밋한 뒤의 조회는 커밋 전에 시작된 조회에 합쳐지지 않음 (read-your-writes)
+ *
+ * 트랜잭션/지표 aspect보다 바깥에서 실행되므로 기다리는 호출은 커넥션을 잡지 않음
+ * 쓰기 트랜잭션 안에서 호출되면 아직 커밋하지 않은 변경이 결과에 섞일 수 있으므로 합치지 않음
+ * 기다리는 호출은 member.single-flight.wait-timeout(기본 2s)이 지나면 직접 실행함 (SingleFlight)
+ * 합쳐진 호출 수는 repository.single-flight 카운터 (outcome=executed|coalesced|wait-timeout), /metrics/repositories 의 coalesced
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class MemberSearchSingleFlight {
+
+    public static final String SINGLE_FLIGHT = "repository.single-flight";
+
+    private final SingleFlight<List<Object>, Object> singleFlight;
+    private final MeterRegistry meterRegistry;
+    private final TableVersions tableVersions;
+    private final boolean enabled;
+
+    public MemberSearchSingleFlight(MeterRegistry meterRegistry, TableVersions tableVersions,
+                                    @Value("${member.single-flight.enabled:true}") boolean enabled,
+                                    @Value("${member.single-flight.wait-timeout:2s}") Duration waitTimeout) {
+        this.singleFlight = new SingleFlight<>(waitTimeout);
+        this.meterRegistry = meterRegistry;
+        this.tableVersions = tableVersions;
+        this.enabled = enabled;
+    }
+
+    @Around("execution(public * study.querydslprac.repository.MemberRepositoryImpl.search(..))" +
+            " || execution(public * study.querydslprac.repository.MemberRepositoryImpl.searchPageComplex(..))")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!enabled || inWriteTransaction()) {
+            return joinPoint.proceed();
+        }
+        String method = joinPoint.getSignature().getName();
+        Object[] args = joinPoint.getArgs();
+        List<Object> key = Arrays.asList(method,
+                MemberSearchKey.of((MemberSearchCondition) args[0]),
+                args.length > 1 ? args[1] : null,
+                tableVersions.memberVersion(),
+                tableVersions.teamVersion());
+
+        SingleFlight.Result<Object> result = singleFlight.execute(key, joinPoint::proceed);
+        meterRegistry.counter(SINGLE_FLIGHT, "repository", "MemberRepositoryImpl", "method", method,
+                "outcome", outcome(result)).increment();
+
+        Object value = result.getValue();
+        //같은 List 인스턴스를 여러 호출자가 나눠갖지 않도록 복사 (Page는 내용을 수정할 수 없음)
+        if (result.isShared() && value instanceof List) {
+            return new ArrayList<>((List<?>) value);
+        }
+        return value;
+    }
+
+    private static String outcome(SingleFlight.Result<Object> result) {
+        if (result.isShared()) {
+            return "coalesced";
+        }
+        return result.isWaitTimedOut() ? "wait-timeout" : "executed";
+    }
+
+    private boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
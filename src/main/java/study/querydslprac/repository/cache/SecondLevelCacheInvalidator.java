@@ -0,0 +1,52 @@
+package study.querydslprac.repository.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydslprac.entity.Team;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+import study.querydslprac.repository.TeamRepository;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * JDBC로 직접 쓴 경우(벌크 insert 등)는 하이버네이트가 2차 캐시/쿼리 캐시를 무효화하지 못하므로 여기서 비움
+ * 엔티티/JPQL 벌크 연산을 통한 쓰기는 하이버네이트가 알아서 처리함
+ *
+ * 회원 벌크 쓰기는 팀 조회 쿼리 결과(TeamRepository.QUERY_REGION)와 상관없으므로 기본 쿼리 리전만 비움
+ * 커밋 전에 비우면 그 사이 다른 트랜잭션이 커밋 전 상태를 다시 캐시할 수 있으므로 커밋 후에 한번 더 비움
+ */
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheInvalidator {
+
+    private final EntityManagerFactory emf;
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!event.isBulk()) {
+            return;
+        }
+        evict(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(event);
+                }
+            });
+        }
+    }
+
+    private void evict(EntityChangedEvent event) {
+        Cache cache = emf.getCache().unwrap(Cache.class);
+        cache.evictDefaultQueryRegion();
+        if (event.getEntityType() == Team.class) {
+            cache.evictQueryRegion(TeamRepository.QUERY_REGION);
+            cache.evictEntityData(Team.class);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package study.querydslprac.repository.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 같은 키로 동시에 들어온 호출을 하나로 합침 (single-flight)
+ * 먼저 들어온 호출(leader)만 실제로 실행하고, 실행중에 같은 키로 들어온 호출은 그 결과(또는 예외)를 같이 받음
+ * 결과를 저장해두지는 않음, 실행이 끝나면 다음 호출은 다시 실행함 (캐시는 WriteInvalidatedCache)
+ *
+ * 기다리는 호출은 waitTimeout까지만 기다리고, 넘으면 직접 실행함
+ * (leader가 멈춰도 같이 멈추지 않고, 직접 실행할 때는 원래 호출처럼 벌크헤드/타임아웃을 거침)
+ */
+public class SingleFlight<K, V> {
+
+    public interface Call<V> {
+        V call() throws Throwable;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Result<V> {
+        private final V value;
+        //다른 호출의 결과를 받았으면 true
+        private final boolean shared;
+        //leader를 기다리다가 waitTimeout이 지나서 직접 실행했으면 true
+        private final boolean waitTimedOut;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutNanos;
+
+    public SingleFlight(Duration waitTimeout) {
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+    }
+
+    public Result<V> execute(K key, Call<V> call) throws Throwable {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return new Result<>(running.get(waitTimeoutNanos, TimeUnit.NANOSECONDS), true, false);
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            } catch (TimeoutException e) {
+                //leader는 그대로 두고 직접 실행, 결과는 다른 호출과 나누지 않음
+                return new Result<>(call.call(), false, true);
+            }
+        }
+
+        try {
+            V value = call.call();
+            future.complete(value);
+            return new Result<>(value, false, false);
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
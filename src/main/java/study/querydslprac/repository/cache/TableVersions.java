@@ -0,0 +1,103 @@
+package study.querydslprac.repository.cache;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * member/team 테이블 버전
+ * 모든 쓰기 경로(엔티티 persist/update/remove, changeTeam 포함, 벌크 연산)의 EntityChangedEvent마다 올라감
+ * 조회 API의 ETag/Last-Modified 계산에 사용해서, 바뀐게 없으면 DB를 조회하지 않고 304로 응답함 (MemberController)
+ *
+ * 트랜잭션 안의 변경은 커밋(또는 롤백) 후에 올림
+ * 커밋 전에 올리면 그 사이에 조회한 요청이 새 버전으로 예전 데이터를 캐시하게 됨
+ * 버전은 조회 전에 읽어야 함 (조회 도중 커밋된 변경은 다음 요청에서 버전이 달라짐)
+ */
+@Component
+public class TableVersions {
+
+    private static final Object PENDING_KEY = new Object();
+
+    //재기동 후 같은 버전 번호가 다시 나와도 예전 ETag와 겹치지 않도록
+    private final long bootId = System.currentTimeMillis();
+    private final Version member = new Version(bootId);
+    private final Version team = new Version(bootId);
+    private final Map<Class<?>, Version> versions = Map.of(Member.class, member, Team.class, team);
+
+    @EventListener
+    @SuppressWarnings("unchecked")
+    public void onEntityChanged(EntityChangedEvent event) {
+        Version version = versions.get(event.getEntityType());
+        if (version == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.bump();
+            return;
+        }
+        Set<Version> pending = (Set<Version>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            Set<Version> changed = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, changed);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+                    changed.forEach(Version::bump);
+                }
+            });
+            pending = changed;
+        }
+        pending.add(version);
+    }
+
+    /**
+     * member, team 버전과 조회 조건(keyParts)으로 만든 ETag
+     */
+    public String etag(Object... keyParts) {
+        return "\"" + Long.toHexString(bootId)
+                + "-" + member.number.get()
+                + "-" + team.number.get()
+                + "-" + Integer.toHexString(Objects.hash(keyParts)) + "\"";
+    }
+
+    /**
+     * member, team 중 마지막으로 바뀐 시각 (epoch millis), 기동 후 바뀐적이 없으면 기동 시각
+     * Last-Modified 헤더는 초 단위로 잘리므로 이것만으로 304를 판단하면 안됨 (MemberController는 ETag로만 판단)
+     */
+    public long lastModified() {
+        return Math.max(member.modifiedAt, team.modifiedAt);
+    }
+
+    public long memberVersion() {
+        return member.number.get();
+    }
+
+    public long teamVersion() {
+        return team.number.get();
+    }
+
+    private static class Version {
+        private final AtomicLong number = new AtomicLong();
+        private volatile long modifiedAt;
+
+        private Version(long modifiedAt) {
+            this.modifiedAt = modifiedAt;
+        }
+
+        private void bump() {
+            modifiedAt = System.currentTimeMillis();
+            number.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package study.querydslprac.repository.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 크기 제한(LRU) + TTL을 가진 단순 캐시, 쓰기가 발생하면 통째로 비움
+ *
+ * invalidateAll()은 즉시 한번 비우고, 트랜잭션 안이라면 커밋(또는 롤백) 이후에 한번 더 비움
+ * (커밋 전에 다른 트랜잭션이 옛날 값을 다시 채워넣는 경우를 막기 위함)
+ * 값을 계산하는 동안 무효화가 일어나면 generation이 바뀌므로 그 결과는 캐시에 넣지 않음
+ * 쓰기 가능한 트랜잭션 안에서는 캐시를 읽지도 채우지도 않음 (isBypassed)
+ */
+public class WriteInvalidatedCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> store;
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public WriteInvalidatedCache(int maxSize, Duration ttl) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize는 1 이상이어야 합니다.");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        //accessOrder = true 로 두면 get 할때마다 맨 뒤로 가므로 가장 오래 안쓴 항목이 맨 앞에 남음
+        this.store = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > WriteInvalidatedCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        if (isBypassed()) {
+            return loader.get();
+        }
+        long startGeneration;
+        synchronized (this) {
+            Entry<V> entry = store.get(key);
+            if (entry != null && System.nanoTime() - entry.createdAt < ttlNanos) {
+                hits++;
+                return entry.value;
+            }
+            if (entry != null) {
+                store.remove(key);
+                evictions++;
+            }
+            misses++;
+            startGeneration = generation;
+        }
+
+        V value = loader.get();
+
+        synchronized (this) {
+            if (startGeneration == generation && value != null) {
+                store.put(key, new Entry<>(value, System.nanoTime()));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 값이 없어도 로딩하지 않음 (통계에도 포함하지 않음)
+     */
+    public synchronized V getIfPresent(K key) {
+        if (isBypassed()) {
+            return null;
+        }
+        Entry<V> entry = store.get(key);
+        return entry != null && System.nanoTime() - entry.createdAt < ttlNanos ? entry.value : null;
+    }
+
+    /**
+     * 지금 스레드의 트랜잭션이 캐시를 거치면 안되는 경우
+     * - 쓰기 가능한 트랜잭션: flush된(커밋 안된) 변경을 볼 수 있으므로 그 결과를 넣으면 커밋 전에 다른 요청에 보임
+     *   flush 후에는 session.isDirty()가 false라서 PersistenceContexts.hasPendingChanges로는 알 수 없음
+     * - 이 트랜잭션에서 이미 무효화한 경우: 다른 트랜잭션이 다시 채운 커밋 전 값을 읽으면 자기 쓰기가 안보임
+     */
+    public boolean isBypassed() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return true;
+        }
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    public void invalidateAll() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            //트랜잭션당 한번만 등록
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(WriteInvalidatedCache.this);
+                    clear();
+                }
+            });
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        store.clear();
+    }
+
+    public synchronized int size() {
+        return store.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long createdAt;
+
+        private Entry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
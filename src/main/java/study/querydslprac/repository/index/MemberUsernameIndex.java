@@ -0,0 +1,633 @@
+package study.querydslprac.repository.index;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+import study.querydslprac.entity.listener.PostWriteEventListener;
+import study.querydslprac.repository.support.PersistenceContexts;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static study.querydslprac.entity.QMember.member;
+
+/**
+ * 회원명 -> 회원 id 메모리 인덱스 (정확히 일치 / 접두사 검색)
+ *
+ * 정렬된 배열 하나(base)와 작은 변경분(delta)으로 구성됨
+ * - base: 회원명을 UTF-8로 이어붙인 byte[] + 시작 위치 int[] + id long[], 회원명(바이트 순) -> id 순으로 정렬
+ *   회원명 하나당 메모리 = UTF-8 길이 + 4(offset) + 8(id) 바이트
+ *   (예: "member12345" 는 23바이트, String + Long 박싱으로 들고 있으면 80바이트 이상)
+ * - delta: 커밋된 insert/update/delete를 TreeSet/HashSet에 쌓아두고, base 크기의 1/16을 넘으면 base로 합침
+ *
+ * 쓰기는 하이버네이트 post-insert/update/delete 이벤트로 받아서 커밋 후에 반영함 (롤백된 변경은 반영되지 않음)
+ * 벌크 연산(EntityChangedEvent bulk)은 어떤 회원이 바뀌었는지 알 수 없으므로 전체를 다시 읽음
+ * 반영은 모두 id 기준 upsert/delete라서 재구성 도중에 들어온 변경을 재구성 후에 다시 적용해도 결과가 같음
+ * 재구성은 결과를 fetch size 단위로 스트리밍해서 base와 같은 모양의 배열에 바로 쌓고 정렬함 (row 목록을 통째로 들고 있지 않음)
+ *
+ * 회원명 정확히 일치 조회(MemberRepository.findByUsername, MemberJpaRepository.findByUsername_Querydsl)는 findMembers를 거침
+ */
+@Slf4j
+@Component
+public class MemberUsernameIndex {
+
+    private static final int MIN_COMPACTION_THRESHOLD = 1024;
+    private static final int LOAD_FETCH_SIZE = 1000;
+    private static final Object PENDING_KEY = new Object();
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate primaryTransaction;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "username-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final Object rebuildMonitor = new Object();
+
+    //아래는 모두 lock으로 보호
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Snapshot base = Snapshot.EMPTY;
+    private final Map<Long, Entry> addedById = new HashMap<>();
+    private final TreeSet<Entry> added = new TreeSet<>();
+    private final Set<Long> removed = new HashSet<>();
+    //재구성 중에 반영된 변경 (재구성 후 다시 적용)
+    private List<Runnable> replay;
+    private boolean ready;
+
+    public MemberUsernameIndex(EntityManager em, EntityManagerFactory emf, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.emf = emf;
+        this.queryFactory = new JPAQueryFactory(em);
+        //replica로 라우팅되면(DataSourceRoutingConfig) 복제 지연만큼 늦은 값으로 재구성되므로 readOnly를 쓰지 않고 primary에서 읽음
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void register() {
+        new HibernateListener().register(emf);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * 최초 재구성 전에는 false, 이때는 DB로 조회해야 함
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 회원명이 정확히 일치하는 회원 id
+     */
+    public long[] findIds(String username) {
+        byte[] key = username.getBytes(StandardCharsets.UTF_8);
+        LongList result = new LongList();
+        lock.readLock().lock();
+        try {
+            for (int i = base.lowerBound(key); i < base.size() && base.compare(i, key) == 0; i++) {
+                if (!removed.contains(base.ids[i])) {
+                    result.add(base.ids[i]);
+                }
+            }
+            for (Entry entry : added.subSet(new Entry(key, Long.MIN_VALUE), true, new Entry(key, Long.MAX_VALUE), true)) {
+                result.add(entry.id);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result.toArray();
+    }
+
+    /**
+     * 회원명이 정확히 일치하는 회원 (id 순)
+     * 없는 회원명이면 SQL 없이 바로 반환, 있으면 PK로만 조회
+     * 인덱스가 아직 준비되지 않았거나, 이 트랜잭션에 인덱스에 아직 반영되지 않은 변경(flush 전/후 모두)이 있으면 DB로 조회
+     */
+    public List<Member> findMembers(String username) {
+        if (username == null || !isReady() || hasUncommittedChanges() || PersistenceContexts.hasPendingChanges(em)) {
+            return queryFactory
+                    .selectFrom(member)
+                    .where(username == null ? member.username.isNull() : member.username.eq(username))
+                    .orderBy(member.id.asc())
+                    .fetch();
+        }
+        long[] ids = findIds(username);
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        //인덱스는 커밋 후에 반영되므로 그 사이에 바뀐 회원명은 username 조건으로 걸러냄
+        return queryFactory
+                .selectFrom(member)
+                .where(member.id.in(Arrays.stream(ids).boxed().toArray(Long[]::new)),
+                        member.username.eq(username))
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    /**
+     * 현재 트랜잭션에서 회원을 바꿨는데 아직 커밋 전이라 인덱스에 반영되지 않았는지
+     */
+    public boolean hasUncommittedChanges() {
+        return TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.hasResource(PENDING_KEY);
+    }
+
+    /**
+     * prefix로 시작하는 회원명을 중복 없이 정렬해서 최대 limit개
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        List<String> result = new ArrayList<>(Math.min(limit, 64));
+        lock.readLock().lock();
+        try {
+            int i = base.lowerBound(key);
+            Iterator<Entry> delta = added.tailSet(new Entry(key, Long.MIN_VALUE), true).iterator();
+            Entry next = nextWithPrefix(delta, key);
+            byte[] last = null;
+            while (result.size() < limit) {
+                while (i < base.size() && base.startsWith(i, key) && removed.contains(base.ids[i])) {
+                    i++;
+                }
+                boolean hasBase = i < base.size() && base.startsWith(i, key);
+                if (!hasBase && next == null) {
+                    break;
+                }
+                byte[] name;
+                if (hasBase && (next == null || base.compare(i, next.name) <= 0)) {
+                    name = base.name(i++);
+                } else {
+                    name = next.name;
+                    next = nextWithPrefix(delta, key);
+                }
+                if (last == null || !Arrays.equals(last, name)) {
+                    result.add(new String(name, StandardCharsets.UTF_8));
+                    last = name;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return base.size() - removedFromBase() + added.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * base 배열이 차지하는 바이트 수 (delta 제외, 합쳐진 직후에는 전체)
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return base.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            lock.writeLock().lock();
+            try {
+                replay = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Snapshot loaded = null;
+            try {
+                loaded = primaryTransaction.execute(status -> load());
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (loaded != null) {
+                        base = loaded;
+                        addedById.clear();
+                        added.clear();
+                        removed.clear();
+                        replay.forEach(Runnable::run);
+                        ready = true;
+                    }
+                    replay = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.isBulk() && event.getEntityType() == Member.class) {
+            afterCommit(this::scheduleRebuild);
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildScheduled.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("username index rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    private Snapshot load() {
+        //DB 정렬(collation)은 UTF-8 바이트 순서와 다를 수 있으므로 정렬은 읽은 뒤에 함
+        SnapshotBuilder builder = new SnapshotBuilder();
+        try (Stream<Object[]> rows = em.createQuery(
+                "select m.username, m.id from Member m where m.username is not null", Object[].class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, LOAD_FETCH_SIZE)
+                .getResultStream()) {
+            rows.forEach(row -> builder.add(((String) row[0]).getBytes(StandardCharsets.UTF_8), (Long) row[1]));
+        }
+        return builder.build();
+    }
+
+    private void upsert(long id, String username) {
+        apply(() -> {
+            Entry previous = addedById.remove(id);
+            if (previous != null) {
+                added.remove(previous);
+            }
+            removed.add(id);
+            if (username != null) {
+                Entry entry = new Entry(username.getBytes(StandardCharsets.UTF_8), id);
+                addedById.put(id, entry);
+                added.add(entry);
+            }
+        });
+    }
+
+    private void delete(long id) {
+        upsert(id, null);
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋 후에 한번에, 밖이면 바로 반영
+     * 커밋 전까지는 PENDING_KEY가 바인딩되어 있으므로 findMembers가 DB로 조회함
+     */
+    @SuppressWarnings("unchecked")
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        List<Runnable> pending = (List<Runnable>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            List<Runnable> changes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.forEach(Runnable::run);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+                }
+            });
+            pending = changes;
+        }
+        pending.add(change);
+    }
+
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (replay != null) {
+                replay.add(change);
+            }
+            change.run();
+            if (replay == null && added.size() + removed.size() > Math.max(MIN_COMPACTION_THRESHOLD, base.size() / 16)) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //base와 delta를 합쳐서 새 base를 만듦 (write lock 안에서 호출)
+    private void compact() {
+        List<Entry> merged = new ArrayList<>(base.size() + added.size());
+        Iterator<Entry> delta = added.iterator();
+        Entry next = delta.hasNext() ? delta.next() : null;
+        for (int i = 0; i < base.size(); i++) {
+            if (removed.contains(base.ids[i])) {
+                continue;
+            }
+            Entry entry = new Entry(base.name(i), base.ids[i]);
+            while (next != null && next.compareTo(entry) < 0) {
+                merged.add(next);
+                next = delta.hasNext() ? delta.next() : null;
+            }
+            merged.add(entry);
+        }
+        while (next != null) {
+            merged.add(next);
+            next = delta.hasNext() ? delta.next() : null;
+        }
+        base = Snapshot.of(merged);
+        addedById.clear();
+        added.clear();
+        removed.clear();
+    }
+
+    private int removedFromBase() {
+        int count = 0;
+        for (long id : base.ids) {
+            if (removed.contains(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Entry nextWithPrefix(Iterator<Entry> iterator, byte[] prefix) {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Entry entry = iterator.next();
+        return entry.startsWith(prefix) ? entry : null;
+    }
+
+    private class HibernateListener extends PostWriteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Member) {
+                Member member = (Member) event.getEntity();
+                long id = (Long) event.getId();
+                String username = member.getUsername();
+                afterCommit(() -> upsert(id, username));
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getEntity() instanceof Member) {
+                long id = (Long) event.getId();
+                String username = ((Member) event.getEntity()).getUsername();
+                Object[] oldState = event.getOldState();
+                //나이/팀만 바뀐 경우는 인덱스가 그대로이므로 반영하지 않음 (이전 값을 모르면 반영)
+                if (oldState != null
+                        && Objects.equals(oldState[indexOf(event.getPersister(), "username")], username)) {
+                    return;
+                }
+                afterCommit(() -> upsert(id, username));
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Member) {
+                long id = (Long) event.getId();
+                afterCommit(() -> delete(id));
+            }
+        }
+    }
+
+    /**
+     * 회원명(UTF-8 바이트 순) -> id 순으로 정렬
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final byte[] name;
+        private final long id;
+
+        private Entry(byte[] name, long id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        private boolean startsWith(byte[] prefix) {
+            return name.length >= prefix.length
+                    && Arrays.equals(name, 0, prefix.length, prefix, 0, prefix.length);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Arrays.compareUnsigned(name, other.name);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * 불변 정렬 배열
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new byte[0], new int[]{0}, new long[0]);
+
+        private final byte[] data;
+        private final int[] offsets;
+        private final long[] ids;
+
+        private Snapshot(byte[] data, int[] offsets, long[] ids) {
+            this.data = data;
+            this.offsets = offsets;
+            this.ids = ids;
+        }
+
+        private static Snapshot of(List<Entry> sorted) {
+            int length = 0;
+            for (Entry entry : sorted) {
+                length += entry.name.length;
+            }
+            byte[] data = new byte[length];
+            int[] offsets = new int[sorted.size() + 1];
+            long[] ids = new long[sorted.size()];
+            int position = 0;
+            for (int i = 0; i < sorted.size(); i++) {
+                Entry entry = sorted.get(i);
+                offsets[i] = position;
+                System.arraycopy(entry.name, 0, data, position, entry.name.length);
+                position += entry.name.length;
+                ids[i] = entry.id;
+            }
+            offsets[sorted.size()] = position;
+            return new Snapshot(data, offsets, ids);
+        }
+
+        private int size() {
+            return ids.length;
+        }
+
+        private int compare(int index, byte[] key) {
+            return Arrays.compareUnsigned(data, offsets[index], offsets[index + 1], key, 0, key.length);
+        }
+
+        private boolean startsWith(int index, byte[] prefix) {
+            int from = offsets[index];
+            return offsets[index + 1] - from >= prefix.length
+                    && Arrays.equals(data, from, from + prefix.length, prefix, 0, prefix.length);
+        }
+
+        private byte[] name(int index) {
+            return Arrays.copyOfRange(data, offsets[index], offsets[index + 1]);
+        }
+
+        //key 이상인 첫번째 위치
+        private int lowerBound(byte[] key) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(mid, key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private long memoryBytes() {
+            return data.length + offsets.length * 4L + ids.length * 8L;
+        }
+    }
+
+    /**
+     * 재구성용, 읽은 순서대로 Snapshot과 같은 모양의 배열에 쌓았다가 정렬해서 Snapshot을 만듦
+     * row마다 Entry 객체를 만들지 않으므로 읽는 동안 메모리는 Snapshot 크기 정도
+     */
+    private static final class SnapshotBuilder {
+        private byte[] data = new byte[1024];
+        private int[] offsets = new int[65];
+        private long[] ids = new long[64];
+        private int size;
+
+        private void add(byte[] name, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            }
+            int position = offsets[size];
+            if (position + name.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, position + name.length));
+            }
+            System.arraycopy(name, 0, data, position, name.length);
+            ids[size] = id;
+            offsets[++size] = position + name.length;
+        }
+
+        private Snapshot build() {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            sort(order, new int[size], 0, size);
+
+            byte[] sortedData = new byte[offsets[size]];
+            int[] sortedOffsets = new int[size + 1];
+            long[] sortedIds = new long[size];
+            int position = 0;
+            for (int i = 0; i < size; i++) {
+                int from = offsets[order[i]];
+                int length = offsets[order[i] + 1] - from;
+                sortedOffsets[i] = position;
+                System.arraycopy(data, from, sortedData, position, length);
+                position += length;
+                sortedIds[i] = ids[order[i]];
+            }
+            sortedOffsets[size] = position;
+            return new Snapshot(sortedData, sortedOffsets, sortedIds);
+        }
+
+        //order[from, to)를 병합 정렬 (Integer로 박싱하지 않으려고 직접 구현)
+        private void sort(int[] order, int[] buffer, int from, int to) {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            sort(order, buffer, from, mid);
+            sort(order, buffer, mid, to);
+            if (compare(order[mid - 1], order[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, buffer, from, to - from);
+            int left = from;
+            int right = mid;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < mid && compare(buffer[left], buffer[right]) <= 0)) {
+                    order[i] = buffer[left++];
+                } else {
+                    order[i] = buffer[right++];
+                }
+            }
+        }
+
+        //Entry.compareTo와 같은 순서 (회원명 UTF-8 바이트 -> id)
+        private int compare(int a, int b) {
+            int result = Arrays.compareUnsigned(data, offsets[a], offsets[a + 1], data, offsets[b], offsets[b + 1]);
+            return result != 0 ? result : Long.compare(ids[a], ids[b]);
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[4];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
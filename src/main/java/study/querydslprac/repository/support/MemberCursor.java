@@ -0,0 +1,142 @@
+package study.querydslprac.repository.support;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import study.querydslprac.dto.MemberTeamDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset 페이징용 커서 토큰
+ * 정렬키(memberId, username, age 중 하나)와 방향, 마지막으로 내려준 row의 정렬키 값과 member_id를 담음
+ * 정렬키가 같은 row가 여러개일 수 있으므로 member_id로 순서를 한번 더 정해서 (정렬키, member_id) 다음부터 찾음
+ * 클라이언트가 내용에 의존하지 않도록 base64url로 감싸서 내려줌
+ */
+@Getter
+public final class MemberCursor {
+
+    private static final String PREFIX = "k:";
+    //정렬키 값이 null인 경우 (username)
+    private static final String NULL_VALUE = "-";
+    private static final String VALUE_PREFIX = "=";
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum SortKey {
+        MEMBER_ID("memberId"),
+        USERNAME("username"),
+        AGE("age");
+
+        private final String property;
+
+        /**
+         * @throws IllegalArgumentException 커서 페이징으로 정렬할 수 없는 속성인 경우
+         */
+        public static SortKey of(String property) {
+            for (SortKey key : values()) {
+                if (key.property.equals(property)) {
+                    return key;
+                }
+            }
+            throw new IllegalArgumentException("커서 페이징은 memberId, username, age로만 정렬할 수 있습니다: " + property);
+        }
+    }
+
+    private final SortKey sortKey;
+    private final boolean descending;
+    private final Long lastMemberId;
+    //정렬키 값의 문자열 표현, MEMBER_ID 정렬이면 사용하지 않음
+    private final String lastValue;
+
+    private MemberCursor(SortKey sortKey, boolean descending, Long lastMemberId, String lastValue) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.lastMemberId = lastMemberId;
+        this.lastValue = lastValue;
+    }
+
+    /**
+     * 요청한 정렬을 커서 정렬로 바꿈, 정렬이 없으면 member_id 오름차순
+     * @throws IllegalArgumentException 정렬 속성이 2개 이상이거나 지원하지 않는 속성인 경우
+     */
+    public static Sort.Order order(Sort sort) {
+        if (sort == null || sort.isUnsorted()) {
+            return Sort.Order.asc(SortKey.MEMBER_ID.getProperty());
+        }
+        if (sort.stream().count() > 1) {
+            throw new IllegalArgumentException("커서 페이징은 정렬 속성을 하나만 쓸 수 있습니다: " + sort);
+        }
+        Sort.Order order = sort.iterator().next();
+        SortKey.of(order.getProperty());
+        return order;
+    }
+
+    public static String encode(Sort.Order order, MemberTeamDto last) {
+        SortKey key = SortKey.of(order.getProperty());
+        Object value;
+        switch (key) {
+            case USERNAME:
+                value = last.getUsername();
+                break;
+            case AGE:
+                value = last.getAge();
+                break;
+            default:
+                value = last.getMemberId();
+        }
+        String raw = PREFIX + key.name() + ":" + (order.isDescending() ? "d" : "a") + ":" + last.getMemberId()
+                + ":" + (value == null ? NULL_VALUE : VALUE_PREFIX + value);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return 첫 페이지 요청(커서 없음)이면 null
+     */
+    public static MemberCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("잘못된 커서입니다: " + cursor);
+            }
+            //정렬키 값(username)에 ':'가 들어갈 수 있으므로 값은 맨 뒤에 두고 4조각까지만 나눔
+            String[] parts = raw.substring(PREFIX.length()).split(":", 4);
+            if (parts.length != 4 || !("a".equals(parts[1]) || "d".equals(parts[1]))) {
+                throw new IllegalArgumentException("잘못된 커서입니다: " + cursor);
+            }
+            SortKey key = SortKey.valueOf(parts[0]);
+            Long lastMemberId = Long.parseLong(parts[2]);
+            String lastValue = parts[3].startsWith(VALUE_PREFIX) ? parts[3].substring(VALUE_PREFIX.length()) : null;
+            if (lastValue == null && (key != SortKey.USERNAME || !NULL_VALUE.equals(parts[3]))) {
+                throw new IllegalArgumentException("잘못된 커서입니다: " + cursor);
+            }
+            if (key == SortKey.AGE) {
+                Integer.parseInt(lastValue);
+            }
+            return new MemberCursor(key, "d".equals(parts[1]), lastMemberId, lastValue);
+        } catch (IllegalArgumentException e) {
+            //NumberFormatException, 없는 SortKey도 여기서 같이 잡힘
+            throw new IllegalArgumentException("잘못된 커서입니다: " + cursor, e);
+        }
+    }
+
+    public Sort.Order toOrder() {
+        return descending ? Sort.Order.desc(sortKey.getProperty()) : Sort.Order.asc(sortKey.getProperty());
+    }
+
+    /**
+     * 다음 페이지 요청의 정렬이 이 커서를 만든 정렬과 같은지 (정렬이 없으면 커서의 정렬을 그대로 씀)
+     */
+    public boolean matches(Sort sort) {
+        if (sort == null || sort.isUnsorted()) {
+            return true;
+        }
+        Sort.Order order = order(sort);
+        return sortKey.getProperty().equals(order.getProperty()) && descending == order.isDescending();
+    }
+}
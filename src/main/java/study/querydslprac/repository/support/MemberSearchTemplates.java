@@ -0,0 +1,143 @@
+package study.querydslprac.repository.support;
+
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydslprac.entity.QMember.member;
+import static study.querydslprac.entity.QTeam.team;
+
+/**
+ * search(MemberSearchCondition)용으로 미리 직렬화해둔 Querydsl 쿼리
+ *
+ * where 파라미터(usernameEq, teamNameEq, ageGoe, ageLoe)는 각각 있거나 없거나이므로 쿼리 모양은 16가지뿐임
+ * 모양(4비트 마스크)마다 값 자리에 Param을 넣은 Querydsl 쿼리를 한번만 만들어서 JPQL로 직렬화해두고
+ * 요청시에는 파라미터만 바인딩함 (매번 QMemberTeamDto/BooleanExpression 트리를 만들고 직렬화하지 않음)
+ * 문자열이 항상 같으므로 하이버네이트 QueryPlanCache에서도 항상 히트해서 JPQL 파싱도 다시 하지 않음
+ *
+ * 쿼리는 Querydsl로 만들기 때문에 DTO나 필드 이름이 바뀌면 컴파일 에러가 남
+ * 조건 판단(hasText, null 체크)은 레포지토리의 where 파라미터 메서드와 똑같이 맞춰야 함
+ */
+public final class MemberSearchTemplates {
+
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+
+    private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+
+    private static final Template[] TEMPLATES = new Template[16];
+
+    static {
+        for (int shape = 0; shape < TEMPLATES.length; shape++) {
+            TEMPLATES[shape] = compile(shape);
+        }
+    }
+
+    private MemberSearchTemplates() {
+    }
+
+    public static List<MemberTeamDto> search(EntityManager em, MemberSearchCondition condition) {
+        Template template = TEMPLATES[shapeOf(condition)];
+        Query query = em.createQuery(template.jpql);
+        for (int i = 0; i < template.constants.size(); i++) {
+            Object constant = template.constants.get(i);
+            //Querydsl 5는 상수/Param을 나온 순서대로 ?1, ?2 .. 위치 파라미터로 직렬화함
+            query.setParameter(i + 1, constant instanceof Param ? valueOf((Param<?>) constant, condition) : constant);
+        }
+
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            //프로젝션은 컬럼 목록으로 직렬화되므로 DTO 생성은 QMemberTeamDto로 직접 함
+            result.add(row instanceof Object[] ? PROJECTION.newInstance((Object[]) row) : (MemberTeamDto) row);
+        }
+        return result;
+    }
+
+    static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    static String jpql(int shape) {
+        return TEMPLATES[shape].jpql;
+    }
+
+    private static Template compile(int shape) {
+        //EntityManager 없이 만들고 직렬화만 함 (실행하지 않음)
+        JPAQuery<MemberTeamDto> query = new JPAQuery<Void>()
+                .select(PROJECTION)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        (shape & USERNAME) != 0 ? member.username.eq(USERNAME_PARAM) : null,
+                        (shape & TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME_PARAM) : null,
+                        (shape & AGE_GOE) != 0 ? member.age.goe(AGE_GOE_PARAM) : null,
+                        (shape & AGE_LOE) != 0 ? member.age.loe(AGE_LOE_PARAM) : null
+                );
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.serialize(query.getMetadata(), false, null);
+        return new Template(serializer.toString(), List.copyOf(serializer.getConstants()));
+    }
+
+    private static Object valueOf(Param<?> param, MemberSearchCondition condition) {
+        if (param == USERNAME_PARAM) {
+            return condition.getUsername();
+        }
+        if (param == TEAM_NAME_PARAM) {
+            return condition.getTeamName();
+        }
+        if (param == AGE_GOE_PARAM) {
+            return condition.getAgeGoe();
+        }
+        if (param == AGE_LOE_PARAM) {
+            return condition.getAgeLoe();
+        }
+        throw new IllegalStateException("바인딩할 값이 없는 파라미터입니다: " + param);
+    }
+
+    private static class Template {
+        private final String jpql;
+        //위치 파라미터 순서대로의 상수/Param
+        private final List<Object> constants;
+
+        private Template(String jpql, List<Object> constants) {
+            this.jpql = jpql;
+            this.constants = constants;
+        }
+    }
+}
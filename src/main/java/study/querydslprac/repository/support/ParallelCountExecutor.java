@@ -0,0 +1,238 @@
+package study.querydslprac.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.config.ConnectionPoolBulkhead;
+import study.querydslprac.metrics.SqlStatementCounter;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 페이징 카운트쿼리를 컨텐츠 조회와 동시에 실행하기 위한 실행기 (member.parallel-count.*)
+ *
+ * 카운트는 별도 스레드에서 새 읽기전용 트랜잭션(= 별도 커넥션)으로 실행함
+ * 카운트가 필요한지는 컨텐츠를 가져온 뒤에야 알 수 있으므로(PageableExecutionUtils) 일단 시작하고,
+ * 필요 없으면 cancel()로 실행중인 쿼리를 취소함
+ *
+ * 다른 커넥션은 호출한 쪽 트랜잭션의 커밋 안된 변경을 볼 수 없으므로
+ * 쓰기 가능한 트랜잭션 안에서 호출된 경우에는 사용하지 않음 (isAvailable)
+ * 풀이 가득차서 작업을 받을 수 없으면 submit이 null을 돌려주고 호출한 쪽에서 기존처럼 순서대로 실행함
+ * 받았더라도 컨텐츠 조회가 끝날때까지 워커가 시작하지 못했거나 timeout 안에 끝나지 않으면 호출한 쪽에서 다시 셈 (CountFuture.await)
+ */
+@Slf4j
+@Component
+public class ParallelCountExecutor {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final boolean enabled;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    //가상 스레드 모드일때만 있음, 워커도 커넥션을 하나 쓰므로 permit을 잡고 실행함
+    private final ConnectionPoolBulkhead bulkhead;
+
+    public ParallelCountExecutor(PlatformTransactionManager transactionManager,
+                                 ObjectProvider<ConnectionPoolBulkhead> bulkhead,
+                                 @Value("${member.parallel-count.enabled:false}") boolean enabled,
+                                 @Value("${member.parallel-count.pool-size:4}") int poolSize,
+                                 @Value("${member.parallel-count.queue-capacity:16}") int queueCapacity,
+                                 @Value("${member.parallel-count.timeout:2s}") Duration timeout) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.bulkhead = bulkhead.getIfAvailable();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "parallel-count-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        //트랜잭션 타임아웃은 JPA 쿼리 타임아웃으로도 적용되므로 DB에서도 쿼리가 끊김
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+    }
+
+    public boolean isAvailable() {
+        return enabled && (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    /**
+     * @return 실행을 시작한 카운트, 받을 수 없으면 null
+     */
+    public CountFuture submit(Supplier<Long> countQuery) {
+        //남은 커넥션이 없으면 기다리지 않고 호출한 쪽 커넥션에서 순서대로 셈
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            log.debug("no connection permit for parallel count, fall back to sequential count");
+            return null;
+        }
+        CountFuture countFuture = new CountFuture(countQuery);
+        try {
+            executor.execute(countFuture.task);
+            return countFuture;
+        } catch (RejectedExecutionException e) {
+            countFuture.releasePermit();
+            log.debug("parallel count rejected, fall back to sequential count");
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 워커에서 실행중인(또는 대기중인) 카운트
+     * 카운트 쿼리는 워커가 시작하지 못했거나 시간 안에 끝내지 못하면 호출한 쪽 트랜잭션(커넥션)에서 다시 실행되므로
+     * 어느 스레드에서 실행돼도 되는 Supplier여야 함
+     */
+    public class CountFuture {
+
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int ABANDONED = 2;
+
+        private final Supplier<Long> countQuery;
+        private final FutureTask<Long> task;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final AtomicReference<Session> running = new AtomicReference<>();
+        private final AtomicBoolean permitReleased = new AtomicBoolean();
+        //워커 스레드에서 실행된 SQL 수, await에서 호출한 스레드의 SqlStatementCounter에 더해줌
+        private volatile long workerStatements;
+
+        private CountFuture(Supplier<Long> countQuery) {
+            this.countQuery = countQuery;
+            this.task = new FutureTask<>(this::runOnWorker);
+        }
+
+        private Long runOnWorker() {
+            //호출한 쪽이 기다리다 포기하고 직접 센 경우
+            if (!state.compareAndSet(PENDING, RUNNING)) {
+                return null;
+            }
+            long statementsAtStart = SqlStatementCounter.current();
+            try {
+                return readOnlyTransaction.execute(status -> {
+                    running.set(em.unwrap(Session.class));
+                    try {
+                        return countQuery.get();
+                    } finally {
+                        running.set(null);
+                    }
+                });
+            } finally {
+                workerStatements = SqlStatementCounter.current() - statementsAtStart;
+                releasePermit();
+            }
+        }
+
+        //워커가 실행을 마쳤거나, 시작하기 전에 포기한 경우 한번만 반납
+        private void releasePermit() {
+            if (bulkhead != null && permitReleased.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+
+        /**
+         * 워커의 카운트 결과를 기다림
+         * - 워커 풀이 밀려서 아직 시작도 못했으면 기다리지 않고 호출한 쪽 커넥션에서 바로 셈
+         * - timeout 안에 끝나지 않으면 실행중인 쿼리를 취소하고 호출한 쪽 커넥션에서 다시 셈
+         */
+        public long await() {
+            if (state.compareAndSet(PENDING, ABANDONED)) {
+                task.cancel(false);
+                releasePermit();
+                log.debug("parallel count not started yet, fall back to sequential count");
+                return sequentialCount();
+            }
+            try {
+                Long count = task.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                return count != null ? count : 0L;
+            } catch (TimeoutException e) {
+                cancel();
+                log.warn("parallel count did not finish in {}, fall back to sequential count", timeout);
+                return sequentialCount();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new QueryTimeoutException("카운트쿼리 대기중 인터럽트", e);
+            } catch (ExecutionException e) {
+                //워커 트랜잭션 타임아웃으로 DB에서 끊긴 경우도 다시 셈
+                if (isTimeout(e.getCause())) {
+                    log.warn("parallel count timed out on the worker, fall back to sequential count");
+                    return sequentialCount();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                SqlStatementCounter.add(workerStatements);
+            }
+        }
+
+        private boolean isTimeout(Throwable cause) {
+            return cause instanceof QueryTimeoutException
+                    || cause instanceof javax.persistence.QueryTimeoutException
+                    || cause instanceof TransactionTimedOutException;
+        }
+
+        private long sequentialCount() {
+            Long count = countQuery.get();
+            return count != null ? count : 0L;
+        }
+
+        /**
+         * 카운트가 필요없어졌거나 타임아웃된 경우, 실행중인 statement까지 취소함 (이미 끝났으면 아무것도 안함)
+         */
+        public void cancel() {
+            if (state.compareAndSet(PENDING, ABANDONED)) {
+                task.cancel(false);
+                releasePermit();
+                return;
+            }
+            if (task.isDone()) {
+                return;
+            }
+            Session session = running.get();
+            if (session != null) {
+                try {
+                    session.cancelQuery();
+                } catch (RuntimeException e) {
+                    log.debug("cancel count query failed", e);
+                }
+            }
+            task.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydslprac.repository.support;
+
+import org.hibernate.Session;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 영속성 컨텍스트 관련 유틸
+ */
+public final class PersistenceContexts {
+
+    private PersistenceContexts() {
+    }
+
+    /**
+     * 아직 flush 안된 변경(persist, 변경감지 대상)이 있는지 확인
+     * 캐시를 조회하기 전에 확인해서, 있으면 캐시를 건너뛰고 쿼리를 날림 (auto flush 되면서 캐시도 무효화됨)
+     * 트랜잭션 밖에서는 공유 EntityManager가 매번 새로 열리므로 쌓여있는 변경이 있을 수 없음
+     */
+    public static boolean hasPendingChanges(EntityManager em) {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && em.unwrap(Session.class).isDirty();
+    }
+}
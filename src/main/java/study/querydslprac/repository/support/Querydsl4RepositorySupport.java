@@ -5,9 +5,12 @@ import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import
         org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
@@ -16,10 +19,16 @@ import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.querydslprac.metrics.CountQueryTracker;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
@@ -34,6 +43,7 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private ParallelCountExecutor parallelCountExecutor;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -53,6 +63,11 @@ public abstract class Querydsl4RepositorySupport {
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
 
+    @Autowired(required = false)
+    public void setParallelCountExecutor(ParallelCountExecutor parallelCountExecutor) {
+        this.parallelCountExecutor = parallelCountExecutor;
+    }
+
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
@@ -80,13 +95,32 @@ public abstract class Querydsl4RepositorySupport {
         return getQueryFactory().selectFrom(from);
     }
 
+    /**
+     * 하이버네이트 쿼리 캐시 사용 (결과 id 목록을 캐시하고 엔티티는 2차 캐시에서 꺼냄)
+     * 쿼리가 참조하는 테이블에 쓰기가 생기면 하이버네이트가 자동으로 무효화함
+     * 2차 캐시 대상 엔티티(Team 등)나 스칼라 결과에만 사용해야 효과가 있음
+     */
+    protected <T> JPAQuery<T> cacheable(JPAQuery<T> query) {
+        return query.setHint(QueryHints.CACHEABLE, true);
+    }
+
+    /**
+     * 쿼리 캐시 결과를 지정한 리전에 둠
+     * JDBC 벌크 쓰기로 쿼리 캐시를 비울때 관련 없는 테이블의 결과까지 같이 비우지 않도록 테이블별로 나눌때 사용 (SecondLevelCacheInvalidator)
+     */
+    protected <T> JPAQuery<T> cacheable(JPAQuery<T> query, String region) {
+        return cacheable(query).setHint(QueryHints.CACHE_REGION, region);
+    }
+
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
         List<T> content = getQuerydsl().applyPagination(pageable,
                 jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            CountQueryTracker.executed();
+            return jpaQuery.fetchCount();
+        });
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable,
@@ -94,10 +128,102 @@ public abstract class Querydsl4RepositorySupport {
             JPAQuery> countQuery) {
 
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaContentQuery).fetch();
         JPAQuery countResult = countQuery.apply(getQueryFactory());
-        return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+
+        //병렬 모드(member.parallel-count.enabled)면 카운트를 별도 커넥션에서 먼저 시작하고 컨텐츠를 가져옴
+        ParallelCountExecutor.CountFuture parallelCount =
+                parallelCountExecutor != null && parallelCountExecutor.isAvailable()
+                        ? parallelCountExecutor.submit(countResult::fetchCount)
+                        : null;
+        try {
+            List<T> content = getQuerydsl().applyPagination(pageable,
+                    jpaContentQuery).fetch();
+            return PageableExecutionUtils.getPage(content, pageable, () -> {
+                CountQueryTracker.executed();
+                return parallelCount != null ? parallelCount.await() : countResult.fetchCount();
+            });
+        } finally {
+            //카운트가 필요 없었으면 실행중인 카운트를 취소
+            if (parallelCount != null) {
+                parallelCount.cancel();
+            }
+        }
+    }
+
+    /**
+     * 카운트 없는 페이징 (Slice)
+     * 페이지 크기보다 1건 더 조회해서 다음 페이지가 있는지만 판단함, 전체 건수가 필요 없는 무한 스크롤용
+     */
+    protected <T> Slice<T> applySlicePagination(Pageable pageable,
+                                                Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+        List<T> content = getQuerydsl().applySorting(pageable.getSort(), jpaQuery)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1L)
+                .fetch();
+        return toSlice(content, pageable);
+    }
+
+    /**
+     * pageSize + 1건으로 조회한 결과를 Slice로 만듦 (마지막 1건은 hasNext 판단용이라 버림)
+     */
+    public static <T> Slice<T> toSlice(List<T> content, Pageable pageable) {
+        boolean hasNext = content.size() > pageable.getPageSize();
+        List<T> page = hasNext ? content.subList(0, pageable.getPageSize()) : content;
+        return new SliceImpl<>(page, pageable, hasNext);
+    }
+
+    /**
+     * 지연 조인(deferred join) 페이징
+     * 1단계: idQuery로 페이지에 해당하는 id만 조회 (offset/정렬/필터를 인덱스만으로 처리할 수 있게 조인/프로젝션 최소화)
+     * 2단계: hydrateQuery에 그 id 목록을 넘겨서 id in (...) 한번으로 실제 결과(DTO 등)를 조회
+     * 2단계 결과는 1단계 id 순서대로 다시 정렬해서 돌려줌
+     *
+     * 깊은 페이지에서 건너뛰는 row나 정렬 대상 row 전체에 대해 조인/프로젝션을 하지 않아도 됨
+     * 카운트는 applyPagination(pageable, contentQuery, countQuery)와 같은 방식 (병렬 모드 포함)
+     *
+     * @param idOf 2단계 결과에서 id를 꺼내는 함수 (순서 복원용)
+     */
+    protected <T> Page<T> applyDeferredJoinPagination(Pageable pageable,
+                                                      Function<JPAQueryFactory, JPAQuery<Long>> idQuery,
+                                                      BiFunction<JPAQueryFactory, List<Long>, JPAQuery<T>> hydrateQuery,
+                                                      Function<T, Long> idOf,
+                                                      Function<JPAQueryFactory, JPAQuery> countQuery) {
+        JPAQuery countResult = countQuery.apply(getQueryFactory());
+        ParallelCountExecutor.CountFuture parallelCount =
+                parallelCountExecutor != null && parallelCountExecutor.isAvailable()
+                        ? parallelCountExecutor.submit(countResult::fetchCount)
+                        : null;
+        try {
+            List<Long> ids = getQuerydsl().applyPagination(pageable,
+                    idQuery.apply(getQueryFactory())).fetch();
+            List<T> content = ids.isEmpty()
+                    ? Collections.emptyList()
+                    : inIdOrder(ids, hydrateQuery.apply(getQueryFactory(), ids).fetch(), idOf);
+            return PageableExecutionUtils.getPage(content, pageable, () -> {
+                CountQueryTracker.executed();
+                return parallelCount != null ? parallelCount.await() : countResult.fetchCount();
+            });
+        } finally {
+            if (parallelCount != null) {
+                parallelCount.cancel();
+            }
+        }
+    }
+
+    private static <T> List<T> inIdOrder(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>(rows.size() * 2);
+        for (T row : rows) {
+            byId.put(idOf.apply(row), row);
+        }
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T row = byId.get(id);
+            //1단계와 2단계 사이에 삭제된 row는 빠짐
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
     }
 }
@@ -0,0 +1,30 @@
+package study.querydslprac.service;
+
+import lombok.Getter;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * 벌크 입력 중 잘못된 줄을 만났거나 청크 저장(DB)이 실패한 경우
+ * 청크마다 따로 커밋되므로 그 전 청크까지(committedRows건)는 이미 저장되어 있고, 실패한 줄이 있던 청크는 저장되지 않음
+ * 저장 실패는 cause가 DataAccessException/TransactionException이고 lineNumber는 실패한 청크의 첫 줄
+ */
+@Getter
+public class MemberBulkLoadException extends RuntimeException {
+
+    private final long lineNumber;
+    private final long committedRows;
+
+    public MemberBulkLoadException(long lineNumber, long committedRows, String message, Throwable cause) {
+        super(lineNumber + "번째 줄: " + message + " (그 전까지 " + committedRows + "건 저장됨)", cause);
+        this.lineNumber = lineNumber;
+        this.committedRows = committedRows;
+    }
+
+    /**
+     * 입력이 아니라 DB 저장이 실패한 경우
+     */
+    public boolean isStorageFailure() {
+        return getCause() instanceof DataAccessException || getCause() instanceof TransactionException;
+    }
+}
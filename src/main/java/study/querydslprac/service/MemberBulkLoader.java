@@ -0,0 +1,158 @@
+package study.querydslprac.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import study.querydslprac.dto.BulkInsertResult;
+import study.querydslprac.dto.MemberBulkRow;
+import study.querydslprac.repository.MemberBulkRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * CSV/NDJSON을 한 줄씩 읽어서 청크 단위로 MemberBulkRepository에 넘김
+ * 입력 전체를 메모리에 올리지 않으므로 입력 크기와 상관없이 청크 하나만큼의 메모리만 사용함
+ * 청크마다 트랜잭션이 따로 커밋되므로 중간에 실패하면 그 전 청크까지는 저장되어 있음
+ * 잘못된 줄을 만나거나 청크 저장이 실패하면 MemberBulkLoadException으로 몇번째 줄인지, 그 전까지 몇건이 저장됐는지 알려줌
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberBulkLoader {
+
+    private static final String CSV_HEADER = "username,age,teamName";
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format from(String format) {
+            return "csv".equalsIgnoreCase(format) ? CSV : NDJSON;
+        }
+    }
+
+    private final MemberBulkRepository memberBulkRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${member.bulk.chunk-size:5000}")
+    private int chunkSize;
+
+    public BulkInsertResult load(Reader source, Format format) throws IOException {
+        long start = System.nanoTime();
+        long total = 0;
+        long lineNumber = 0;
+        long chunkStartLine = 0;
+        Map<String, Long> teamIds = new HashMap<>();
+        List<MemberBulkRow> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!hasText(line)) {
+                continue;
+            }
+            //CSV 헤더는 건너뜀 (username1,20,teamA 같은 데이터 줄은 헤더가 아님)
+            if (format == Format.CSV && lineNumber == 1 && CSV_HEADER.equalsIgnoreCase(line.trim())) {
+                continue;
+            }
+            if (chunk.isEmpty()) {
+                chunkStartLine = lineNumber;
+            }
+            try {
+                chunk.add(parse(line, format));
+            } catch (IllegalArgumentException e) {
+                throw new MemberBulkLoadException(lineNumber, total, e.getMessage(), e);
+            } catch (JsonProcessingException e) {
+                throw new MemberBulkLoadException(lineNumber, total, "JSON 형식이 아닙니다. " + e.getOriginalMessage(), e);
+            }
+            if (chunk.size() == chunkSize) {
+                total += insertChunk(chunk, teamIds, chunkStartLine, total);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            total += insertChunk(chunk, teamIds, chunkStartLine, total);
+        }
+
+        BulkInsertResult result = new BulkInsertResult(total, System.nanoTime() - start);
+        log.info("member bulk insert rows={} elapsed={}ms rows/sec={}",
+                result.getRows(), result.getElapsedMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    //저장 실패는 청크 첫 줄 번호로 알려줌 (그 청크부터 다시 올리면 됨)
+    private int insertChunk(List<MemberBulkRow> chunk, Map<String, Long> teamIds, long chunkStartLine, long committedRows) {
+        try {
+            return memberBulkRepository.insertChunk(chunk, teamIds);
+        } catch (DataAccessException | TransactionException e) {
+            throw new MemberBulkLoadException(chunkStartLine, committedRows, "저장에 실패했습니다. " + e.getMessage(), e);
+        }
+    }
+
+    private MemberBulkRow parse(String line, Format format) throws JsonProcessingException {
+        MemberBulkRow row;
+        if (format == Format.NDJSON) {
+            row = objectMapper.readValue(line, MemberBulkRow.class);
+        } else {
+            List<String> columns = splitCsv(line);
+            if (columns.size() < 2) {
+                throw new IllegalArgumentException("username,age[,teamName] 형식이어야 합니다.");
+            }
+            try {
+                row = new MemberBulkRow(columns.get(0), Integer.parseInt(columns.get(1).trim()),
+                        columns.size() > 2 ? columns.get(2) : null);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("age가 숫자가 아닙니다.", e);
+            }
+        }
+        if (!hasText(row.getUsername())) {
+            throw new IllegalArgumentException("username이 비어있습니다.");
+        }
+        if (!hasText(row.getTeamName())) {
+            row.setTeamName(null);
+        }
+        return row;
+    }
+
+    //따옴표로 감싼 값("a,b", "a""b")까지만 처리하는 간단한 CSV 분리
+    private static List<String> splitCsv(String line) {
+        List<String> columns = new ArrayList<>(3);
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                columns.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        columns.add(current.toString());
+        return columns;
+    }
+}
@@ -0,0 +1,330 @@
+package study.querydslprac.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.dto.TeamStatsDto;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+import study.querydslprac.entity.listener.PostWriteEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 팀별 회원 통계 (count, sum, avg, min, max of member.age) 를 메모리에 유지
+ * QuerydslBasicTest의 aggregation/group 예제를 매번 group by 하는 대신 변경분만 반영함
+ *
+ * - Member/Team insert, update(팀 변경, 나이 변경), delete는 하이버네이트 이벤트로 변경분을 계산해서 커밋 후에 반영
+ *   (롤백된 변경은 반영되지 않음)
+ * - 벌크 연산(EntityChangedEvent bulk)은 변경분을 알 수 없으므로 전체를 다시 집계함, 연달아 들어오면 한번으로 합침
+ * - 기동시 전체 집계
+ *
+ * 재구성은 집계 쿼리를 lock 밖에서 실행함 (조회와 커밋 후 반영이 쿼리를 기다리지 않게)
+ * REPEATABLE_READ 트랜잭션의 첫 쿼리에서 스냅샷이 정해지므로 첫 쿼리(팀 목록) 동안만 commitGate로 커밋을 막음
+ * 그 전에 커밋된 변경은 스냅샷에 들어가고, 그 뒤에 커밋된 변경은 replay에 쌓였다가 집계 결과에 다시 적용함
+ *
+ * min/max는 회원이 빠질때 다시 구할 수 있도록 팀마다 나이별 인원수(TreeMap)로 들고 있음
+ */
+@Slf4j
+@Service
+public class TeamStatsService {
+
+    private static final Object PENDING_KEY = new Object();
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final EntityManagerFactory emf;
+    private final TransactionTemplate snapshotTransaction;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "team-stats-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final Object rebuildMonitor = new Object();
+    //커밋(beforeCommit ~ afterCompletion)은 read lock, 재구성 스냅샷을 잡는 동안은 write lock
+    private final ReentrantReadWriteLock commitGate = new ReentrantReadWriteLock();
+
+    //lock으로 보호
+    private final Object lock = new Object();
+    private Map<Long, TeamStats> stats = new HashMap<>();
+    //재구성 스냅샷 이후에 커밋된 변경 (재구성 후 다시 적용)
+    private List<Consumer<Map<Long, TeamStats>>> replay;
+
+    public TeamStatsService(EntityManagerFactory emf, PlatformTransactionManager transactionManager) {
+        this.emf = emf;
+        //replica로 라우팅되면(DataSourceRoutingConfig) 복제 지연만큼 늦은 값으로 재구성되므로 readOnly를 쓰지 않고 primary에서 읽음
+        //팀 목록과 회원 집계가 같은 스냅샷을 보도록 REPEATABLE_READ
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @PostConstruct
+    public void register() {
+        new HibernateListener().register(emf);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * SQL 없이 O(팀 수)
+     */
+    public List<TeamStatsDto> findAll() {
+        synchronized (lock) {
+            List<TeamStatsDto> result = new ArrayList<>(stats.size());
+            stats.forEach((teamId, teamStats) -> result.add(teamStats.toDto(teamId)));
+            result.sort((a, b) -> Long.compare(a.getTeamId(), b.getTeamId()));
+            return result;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            Map<Long, TeamStats> loaded = null;
+            try {
+                loaded = snapshotTransaction.execute(status -> load());
+            } finally {
+                synchronized (lock) {
+                    if (loaded != null) {
+                        for (Consumer<Map<Long, TeamStats>> change : replay) {
+                            change.accept(loaded);
+                        }
+                        stats = loaded;
+                    }
+                    replay = null;
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.isBulk()) {
+            afterCommit(ignored -> scheduleRebuild());
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildScheduled.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("team stats rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    private Map<Long, TeamStats> load() {
+        Map<Long, TeamStats> loaded = new HashMap<>();
+        //커넥션은 트랜잭션 시작시 이미 잡았으므로 커밋을 막고 있는 동안 커넥션 풀을 기다리지 않음
+        commitGate.writeLock().lock();
+        try {
+            for (Object[] row : em.createQuery("select t.id, t.name from Team t", Object[].class).getResultList()) {
+                loaded.put((Long) row[0], new TeamStats((String) row[1]));
+            }
+            synchronized (lock) {
+                replay = new ArrayList<>();
+            }
+        } finally {
+            commitGate.writeLock().unlock();
+        }
+        List<Object[]> ages = em.createQuery(
+                "select m.team.id, m.age, count(m) from Member m where m.team is not null group by m.team.id, m.age",
+                Object[].class).getResultList();
+        for (Object[] row : ages) {
+            TeamStats teamStats = loaded.computeIfAbsent((Long) row[0], id -> new TeamStats(null));
+            teamStats.add((Integer) row[1], (Long) row[2]);
+        }
+        return loaded;
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋 후에 한번에, 밖이면 바로 반영
+     */
+    @SuppressWarnings("unchecked")
+    private void afterCommit(Consumer<Map<Long, TeamStats>> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(List.of(change));
+            return;
+        }
+        List<Consumer<Map<Long, TeamStats>>> pending =
+                (List<Consumer<Map<Long, TeamStats>>>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            List<Consumer<Map<Long, TeamStats>>> changes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean gated;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    //재구성이 스냅샷을 잡는 중이면 끝날때까지 커밋을 미룸
+                    commitGate.readLock().lock();
+                    gated = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    apply(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (gated) {
+                        gated = false;
+                        commitGate.readLock().unlock();
+                    }
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+                }
+            });
+            pending = changes;
+        }
+        pending.add(change);
+    }
+
+    private void apply(List<Consumer<Map<Long, TeamStats>>> changes) {
+        synchronized (lock) {
+            if (replay != null) {
+                replay.addAll(changes);
+            }
+            for (Consumer<Map<Long, TeamStats>> change : changes) {
+                change.accept(stats);
+            }
+        }
+    }
+
+    private static Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private static void addMember(Map<Long, TeamStats> stats, Long teamId, int age, long delta) {
+        if (teamId == null) {
+            return;
+        }
+        stats.computeIfAbsent(teamId, id -> new TeamStats(null)).add(age, delta);
+    }
+
+    private class HibernateListener extends PostWriteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Member) {
+                Object[] state = event.getState();
+                Long teamId = teamId(state[indexOf(event.getPersister(), "team")]);
+                int age = (Integer) state[indexOf(event.getPersister(), "age")];
+                afterCommit(stats -> addMember(stats, teamId, age, 1));
+            } else if (event.getEntity() instanceof Team) {
+                Long id = (Long) event.getId();
+                String name = ((Team) event.getEntity()).getName();
+                afterCommit(stats -> stats.computeIfAbsent(id, key -> new TeamStats(name)).name = name);
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getEntity() instanceof Member) {
+                Object[] oldState = event.getOldState();
+                if (oldState == null) {
+                    //detached 엔티티 merge 등 이전 값을 모르면 전체 집계
+                    afterCommit(ignored -> scheduleRebuild());
+                    return;
+                }
+                int teamIndex = indexOf(event.getPersister(), "team");
+                int ageIndex = indexOf(event.getPersister(), "age");
+                Long oldTeamId = teamId(oldState[teamIndex]);
+                Long newTeamId = teamId(event.getState()[teamIndex]);
+                int oldAge = (Integer) oldState[ageIndex];
+                int newAge = (Integer) event.getState()[ageIndex];
+                if (oldAge == newAge && Objects.equals(oldTeamId, newTeamId)) {
+                    return;
+                }
+                afterCommit(stats -> {
+                    addMember(stats, oldTeamId, oldAge, -1);
+                    addMember(stats, newTeamId, newAge, 1);
+                });
+            } else if (event.getEntity() instanceof Team) {
+                Long id = (Long) event.getId();
+                String name = ((Team) event.getEntity()).getName();
+                afterCommit(stats -> stats.computeIfAbsent(id, key -> new TeamStats(name)).name = name);
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Member) {
+                Object[] state = event.getDeletedState();
+                Long teamId = teamId(state[indexOf(event.getPersister(), "team")]);
+                int age = (Integer) state[indexOf(event.getPersister(), "age")];
+                afterCommit(stats -> addMember(stats, teamId, age, -1));
+            } else if (event.getEntity() instanceof Team) {
+                Long id = (Long) event.getId();
+                afterCommit(stats -> stats.remove(id));
+            }
+        }
+    }
+
+    private static class TeamStats {
+        private String name;
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+        private long count;
+        private long ageSum;
+
+        private TeamStats(String name) {
+            this.name = name;
+        }
+
+        private void add(int age, long delta) {
+            long remaining = ages.merge(age, delta, Long::sum);
+            if (remaining <= 0) {
+                ages.remove(age);
+            }
+            count += delta;
+            ageSum += age * delta;
+        }
+
+        private TeamStatsDto toDto(Long teamId) {
+            return new TeamStatsDto(teamId, name, count, ageSum,
+                    ages.isEmpty() ? null : ages.firstKey(),
+                    ages.isEmpty() ? null : ages.lastKey());
+        }
+    }
+}
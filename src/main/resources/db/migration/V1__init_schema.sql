@@ -0,0 +1,26 @@
+-- 엔티티(Hello, Member, Team) 기준 초기 스키마
+-- @GeneratedValue(AUTO)는 hibernate_sequence 하나를 같이 사용함
+
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table hello (
+    id bigint not null,
+    primary key (id)
+);
+
+create table team (
+    id   bigint not null,
+    name varchar(255),
+    primary key (id)
+);
+
+create table member (
+    member_id bigint  not null,
+    age       integer not null,
+    username  varchar(255),
+    team_id   bigint,
+    primary key (member_id)
+);
+
+alter table member
+    add constraint fk_member_team foreign key (team_id) references team (id);
@@ -0,0 +1,13 @@
+-- MemberRepositoryImpl 등의 where 파라미터(usernameEq, teamNameEq, ageGoe, ageLoe)용 인덱스
+
+-- usernameEq, 회원명 조회(findByUsername)
+create index idx_member_username on member (username);
+
+-- teamNameEq: team.name으로 팀을 찾고 member.team_id로 조인
+create index idx_team_name on team (name);
+
+-- teamNameEq + ageGoe/ageLoe: 팀으로 좁힌 뒤 나이 범위를 인덱스에서 바로 읽음 (team_id 단독 조인/FK 인덱스도 겸함)
+create index idx_member_team_age on member (team_id, age);
+
+-- 팀 조건 없이 ageGoe/ageLoe만 있는 경우
+create index idx_member_age on member (age);
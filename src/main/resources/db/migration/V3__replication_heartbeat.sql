@@ -0,0 +1,10 @@
+-- 복제 지연 측정용 (ReplicaLagMonitor)
+-- primary에 주기적으로 현재 시각을 쓰고, replica에서 읽은 값과의 차이를 지연으로 봄
+
+create table replication_heartbeat (
+    id      integer   not null,
+    beat_at timestamp not null,
+    primary key (id)
+);
+
+insert into replication_heartbeat (id, beat_at) values (1, current_timestamp);
@@ -0,0 +1,100 @@
+package study.querydslprac.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydslprac.entity.Member;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionPoolBulkheadTest {
+
+    //스프링 데이터 레포지토리처럼 보이는 대상 (this(Repository) 포인트컷)
+    interface CallbackRepository extends Repository<Member, Long> {
+        <T> T run(Supplier<T> body);
+    }
+
+    static class CallbackRepositoryImpl implements CallbackRepository {
+        @Override
+        public <T> T run(Supplier<T> body) {
+            return body.get();
+        }
+    }
+
+    private final ConnectionPoolBulkhead bulkhead = new ConnectionPoolBulkhead(1, Duration.ofMillis(100));
+    private final CallbackRepository repository = proxy(bulkhead);
+
+    @Test
+    public void limitTest() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> holder = executor.submit(() -> repository.run(() -> {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            //permit이 하나뿐이므로 acquire-timeout(100ms) 후 실패
+            assertThatThrownBy(() -> repository.run(() -> 2))
+                    .isInstanceOf(TransientDataAccessResourceException.class);
+
+            release.countDown();
+            assertThat(holder.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void nestedCallTest() {
+        //같은 스레드의 중첩 호출은 permit을 다시 잡지 않음
+        assertThat(repository.run(() -> repository.run(() -> "ok"))).isEqualTo("ok");
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void heldUntilTransactionCompletionTest() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            repository.run(() -> 1);
+            //트랜잭션이 커넥션을 들고 있으므로 레포지토리 호출이 끝나도 반납하지 않음
+            assertThat(bulkhead.availablePermits()).isEqualTo(0);
+            //같은 트랜잭션의 다음 호출은 permit을 다시 잡지 않음
+            assertThat(repository.run(() -> 2)).isEqualTo(2);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+    }
+
+    private static CallbackRepository proxy(ConnectionPoolBulkhead bulkhead) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new CallbackRepositoryImpl());
+        factory.addInterface(CallbackRepository.class);
+        factory.addAspect(bulkhead);
+        return factory.getProxy();
+    }
+}
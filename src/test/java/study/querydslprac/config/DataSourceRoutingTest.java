@@ -0,0 +1,127 @@
+package study.querydslprac.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.entity.Member;
+import study.querydslprac.repository.MemberJpaRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//H2 메모리 DB 두개를 primary/replica로 띄움, replica에는 복제가 없으므로 데이터를 직접 넣어서 어디서 읽었는지 확인
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "member.datasource.routing.enabled=true",
+        "member.datasource.routing.replicas[0].url=" + DataSourceRoutingTest.REPLICA_URL,
+        "member.datasource.routing.migrate-replicas=true",
+        //replica heartbeat는 갱신되지 않으므로 지연 허용치를 크게 둠
+        "member.datasource.routing.max-lag=1h"
+})
+@AutoConfigureMockMvc
+class DataSourceRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired ReplicaLagMonitor replicaLagMonitor;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired Environment environment;
+    @Autowired MockMvc mockMvc;
+
+    JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member where username like 'routing%'");
+        replica.update("delete from member where username like 'routing%'");
+    }
+
+    @Test
+    public void readOnlyGoesToReplicaTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> memberJpaRepository.save(new Member("routingPrimary", 10)));
+        replica.update("insert into member (member_id, username, age) values (900000, 'routingReplica', 20)");
+
+        //readOnly 조회는 replica
+        assertThat(memberJpaRepository.findByUsername_Querydsl("routingReplica")).hasSize(1);
+        assertThat(memberJpaRepository.findByUsername_Querydsl("routingPrimary")).isEmpty();
+
+        //쓰기 트랜잭션 안의 조회는 primary
+        List<Member> inWriteTransaction = tx.execute(status -> memberJpaRepository.findByUsername_Querydsl("routingPrimary"));
+        assertThat(inWriteTransaction).hasSize(1);
+
+        assertThat(routed("replica-0", "read")).isGreaterThan(0);
+        assertThat(routed("primary", "write")).isGreaterThan(0);
+        assertThat(replicaLagMonitor.getLagMillis().get("replica-0")).isGreaterThanOrEqualTo(0);
+        assertThat(replicaLagMonitor.isHealthy("replica-0")).isTrue();
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimaryTest() {
+        replica.update("update replication_heartbeat set beat_at = dateadd('HOUR', -2, current_timestamp) where id = 1");
+        replicaLagMonitor.check();
+        try {
+            assertThat(replicaLagMonitor.isHealthy("replica-0")).isFalse();
+
+            new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> memberJpaRepository.save(new Member("routingPrimary", 10)));
+            assertThat(memberJpaRepository.findByUsername_Querydsl("routingPrimary")).hasSize(1);
+            assertThat(routed("primary", "replica-lag")).isGreaterThan(0);
+        } finally {
+            replica.update("update replication_heartbeat set beat_at = current_timestamp where id = 1");
+            replicaLagMonitor.check();
+        }
+    }
+
+    @Test
+    public void etagWaitsForReplicaTest() throws Exception {
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> memberJpaRepository.save(new Member("routingEtag", 10)));
+
+        //replica가 방금 쓴 변경 이후의 heartbeat를 반영하지 못했으면 옛날 row일 수 있으므로 ETag를 붙이지 않음
+        mockMvc.perform(get("/v3/members"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+        //반영한 뒤에는 ETag를 붙임
+        replica.update("update replication_heartbeat set beat_at = dateadd('SECOND', 10, current_timestamp) where id = 1");
+        replicaLagMonitor.check();
+        try {
+            mockMvc.perform(get("/v3/members"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(HttpHeaders.ETAG));
+        } finally {
+            replica.update("update replication_heartbeat set beat_at = current_timestamp where id = 1");
+            replicaLagMonitor.check();
+        }
+    }
+
+    @Test
+    public void openInViewDisabledTest() {
+        //라우팅을 켜면 따로 설정하지 않은 open-in-view는 꺼짐 (OpenInViewEnvironmentPostProcessor)
+        assertThat(environment.getProperty("spring.jpa.open-in-view", Boolean.class)).isFalse();
+    }
+
+    private double routed(String target, String reason) {
+        Counter counter = meterRegistry.find("datasource.routing").tags("target", target, "reason", reason).counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
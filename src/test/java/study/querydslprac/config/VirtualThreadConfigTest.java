@@ -0,0 +1,65 @@
+package study.querydslprac.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VirtualThreadConfigTest {
+
+    @Test
+    public void virtualThreadExecutorTest() throws Exception {
+        //가상 스레드는 Java 21부터 있음, 그 전에는 기동할때 알려줌
+        if (Runtime.version().feature() < 21) {
+            assertThatThrownBy(VirtualThreadConfig::newVirtualThreadPerTaskExecutor)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Java 21");
+            return;
+        }
+        ExecutorService executor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor();
+        try {
+            Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(virtual).isEqualTo(true);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void openInViewDisabledTest() {
+        OpenInViewEnvironmentPostProcessor postProcessor = new OpenInViewEnvironmentPostProcessor();
+
+        //가상 스레드 모드면 설정하지 않은 open-in-view는 false
+        MockEnvironment virtualThreads = new MockEnvironment().withProperty("member.virtual-threads.enabled", "true");
+        postProcessor.postProcessEnvironment(virtualThreads, null);
+        assertThat(virtualThreads.getProperty("spring.jpa.open-in-view", Boolean.class)).isFalse();
+
+        //직접 true로 켰으면 기동하지 않음
+        MockEnvironment openInView = new MockEnvironment()
+                .withProperty("member.virtual-threads.enabled", "true")
+                .withProperty("spring.jpa.open-in-view", "true");
+        assertThatThrownBy(() -> postProcessor.postProcessEnvironment(openInView, null))
+                .isInstanceOf(IllegalStateException.class);
+
+        //읽기/쓰기 라우팅도 마찬가지
+        MockEnvironment routing = new MockEnvironment().withProperty("member.datasource.routing.enabled", "true");
+        postProcessor.postProcessEnvironment(routing, null);
+        assertThat(routing.getProperty("spring.jpa.open-in-view", Boolean.class)).isFalse();
+        MockEnvironment routingOpenInView = new MockEnvironment()
+                .withProperty("member.datasource.routing.enabled", "true")
+                .withProperty("spring.jpa.open-in-view", "true");
+        assertThatThrownBy(() -> postProcessor.postProcessEnvironment(routingOpenInView, null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("member.datasource.routing.enabled");
+
+        //기본 모드는 건드리지 않음
+        MockEnvironment platformThreads = new MockEnvironment();
+        postProcessor.postProcessEnvironment(platformThreads, null);
+        assertThat(platformThreads.getProperty("spring.jpa.open-in-view")).isNull();
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydslprac.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import study.querydslprac.entity.Member;
+import study.querydslprac.repository.MemberRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//테이블 버전은 커밋 후에 올라가므로 @Transactional 없이 직접 저장하고 지움
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void etagTest() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/v3/members").param("teamName", "teamA"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse();
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+        assertThat(etag).isNotNull();
+
+        //바뀐게 없으면 304
+        mockMvc.perform(get("/v3/members").param("teamName", "teamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        //조건이 다르면 ETag도 다름
+        mockMvc.perform(get("/v3/members").param("teamName", "teamB").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        //Last-Modified는 초 단위라 같은 초 안의 쓰기를 놓칠 수 있으므로 If-Modified-Since만으로는 304를 주지 않음
+        mockMvc.perform(get("/v3/members").param("teamName", "teamA")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isOk());
+
+        Member member = memberRepository.save(new Member("etagMember", 10));
+        try {
+            //저장 후에는 다시 조회
+            mockMvc.perform(get("/v3/members").param("teamName", "teamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isOk());
+        } finally {
+            memberRepository.delete(member);
+        }
+    }
+}
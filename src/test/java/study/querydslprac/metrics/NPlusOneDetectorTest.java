@@ -0,0 +1,65 @@
+package study.querydslprac.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+import study.querydslprac.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "member.n-plus-one.mode=fail")
+@Transactional
+class NPlusOneDetectorTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberJpaRepository memberJpaRepository;
+
+    @Test
+    public void lazyTeamLoadInLoopTest() {
+        for (int i = 0; i < 3; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+
+        List<Member> members = memberJpaRepository.findAll_Querydsl();
+
+        //회원마다 팀 select가 한번씩 나가므로 세번째에서 걸림
+        assertThatThrownBy(() -> members.forEach(m -> m.getTeam().getName()))
+                .isInstanceOf(NPlusOneDetectedException.class)
+                .hasMessageContaining("Member.team")
+                .hasMessageContaining("MemberJpaRepository.findAll_Querydsl");
+    }
+
+    @Test
+    public void secondLevelCacheHitNotCountedTest() {
+        List<Long> teamIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Team team = new Team("cachedTeam" + i);
+            em.persist(team);
+            em.persist(new Member("cachedMember" + i, i, team));
+            teamIds.add(team.getId());
+        }
+        em.flush();
+        em.clear();
+        //팀을 한번씩 읽어서 2차 캐시에 올려둠 (find는 프록시 초기화가 아니므로 세지 않음)
+        teamIds.forEach(id -> em.find(Team.class, id));
+        em.clear();
+
+        List<Member> members = memberJpaRepository.findAll_Querydsl();
+
+        //프록시 초기화는 세번 일어나지만 2차 캐시에서 꺼내므로 SQL이 나가지 않음
+        assertThatCode(() -> members.forEach(m -> m.getTeam().getName()))
+                .doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,55 @@
+package study.querydslprac.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+import study.querydslprac.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class RepositoryMetricsAspectTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void countQuerySkippedTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+
+        double skippedBefore = skipped();
+
+        //첫 페이지인데 컨텐츠가 페이지 크기보다 작으면 카운트쿼리를 생략함
+        memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 10));
+
+        assertThat(skipped()).isEqualTo(skippedBefore + 1);
+        Timer timer = meterRegistry.find(RepositoryMetricsAspect.INVOCATION)
+                .tags("repository", "MemberRepositoryImpl", "method", "searchPageComplex")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+    }
+
+    private double skipped() {
+        Counter counter = meterRegistry.find(RepositoryMetricsAspect.COUNT_QUERY)
+                .tags("method", "searchPageComplex", "outcome", "skipped")
+                .counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydslprac.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydslprac.entity.Member;
+import study.querydslprac.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//기준을 0으로 두고 모든 SQL을 기록
+@SpringBootTest(properties = "member.slow-query.threshold=0ms")
+@Transactional
+class SlowQueryLogTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired SlowQueryLog slowQueryLog;
+
+    @Test
+    public void recordTest() throws Exception {
+        em.persist(new Member("slowMember", 10));
+        em.flush();
+        slowQueryLog.clear();
+
+        memberJpaRepository.findByUsername_Querydsl("slowMember");
+
+        SlowQueryRecord record = slowQueryLog.recent().stream()
+                .filter(r -> r.getSqlWithValues().contains("'slowMember'"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(record.getRepositoryMethod()).isEqualTo("MemberJpaRepository.findByUsername_Querydsl");
+        assertThat(record.getSql()).contains("?");
+
+        //EXPLAIN ANALYZE는 백그라운드에서 채워짐
+        for (int i = 0; i < 50 && record.getExplain() == null; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(record.getExplain()).isNotNull().containsIgnoringCase("member");
+    }
+}
@@ -12,6 +12,7 @@ import study.querydslprac.entity.Team;
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
@@ -68,4 +69,78 @@ class MemberJpaRepositoryTest {
 
         assertThat(result).extracting("username").containsExactly("member3","member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchStreamTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        long count = memberJpaRepository.searchStream(condition, result::add);
+
+        assertThat(count).isEqualTo(3);
+        assertThat(result).extracting("username").containsExactly("member2", "member3", "member4");
+    }
+
+    @Test
+    public void findAllByIdsTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        List<Member> members = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            Member member = new Member("member" + i, i * 10, teamA);
+            em.persist(member);
+            members.add(member);
+        }
+        em.flush();
+        em.clear();
+
+        //member2는 이미 영속성 컨텍스트에 있으므로 다시 조회하지 않고 같은 인스턴스를 돌려줌
+        Member member2 = em.find(Member.class, members.get(1).getId());
+
+        List<Member> result = memberJpaRepository.findAllByIds(List.of(
+                members.get(2).getId(), members.get(0).getId(), members.get(2).getId(),
+                members.get(1).getId(), -1L));
+
+        //중복 제거, 요청 순서 유지, 없는 id는 빠짐
+        assertThat(result).extracting("username").containsExactly("member3", "member1", "member2");
+        assertThat(result.get(2)).isSameAs(member2);
+        assertThat(result.get(0).getTeam().getName()).isEqualTo("teamA");
+    }
+
+    @Test
+    public void searchShapesTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member1", 30, teamB));
+        em.persist(new Member("member4", 40));
+
+        //16가지 모양 모두 미리 직렬화해둔 쿼리와 BooleanBuilder 쿼리의 결과가 같아야 함
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "member1" : null);
+            condition.setTeamName((shape & 2) != 0 ? "teamA" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 10 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 30 : null);
+
+            assertThat(memberJpaRepository.search(condition))
+                    .as("shape %d", shape)
+                    .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchByBuilder(condition));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydslprac.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+import study.querydslprac.metrics.SqlStatementCounter;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//벌크 연산이 여러 구간으로 나뉘는지 보기 위해 구간 크기를 작게 잡음
+@SpringBootTest(properties = "member.bulk.update-chunk-size=2")
+@Transactional
+class MemberRepositoryBulkTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void bulkUpdateDeleteTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition teamBCondition = new MemberSearchCondition();
+        teamBCondition.setTeamName("teamB");
+
+        long updated = memberRepository.bulkIncrementAge(teamBCondition, 1);
+
+        assertThat(updated).isEqualTo(2);
+        //영속성 컨텍스트에 남아있던 member3는 detach 되었으므로 다시 조회하면 바뀐 값이 나와야 함
+        assertThat(em.contains(member3)).isFalse();
+        assertThat(memberRepository.findById(member3.getId()).get().getAge()).isEqualTo(31);
+        assertThat(memberRepository.findById(member1.getId()).get().getAge()).isEqualTo(10);
+
+        MemberSearchCondition oldCondition = new MemberSearchCondition();
+        oldCondition.setAgeGoe(41);
+
+        long deleted = memberRepository.bulkDeleteByCondition(oldCondition);
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(memberRepository.findById(member4.getId())).isEmpty();
+    }
+
+    @Test
+    public void bulkSparseIdsTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        //teamB 회원 사이에 teamA 회원을 끼워넣어서 teamB 회원의 id가 듬성듬성하게 만듦
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("member" + i, 10, i % 10 == 0 ? teamB : teamA));
+        }
+        em.flush();
+
+        MemberSearchCondition teamBCondition = new MemberSearchCondition();
+        teamBCondition.setTeamName("teamB");
+
+        long statementsBefore = SqlStatementCounter.current();
+        long updated = memberRepository.bulkIncrementAge(teamBCondition, 1);
+
+        assertThat(updated).isEqualTo(2);
+        //구간 경계 조회 2번(2건, 더 없음) + update 1번, id 사이의 빈 구간에는 update를 날리지 않음
+        assertThat(SqlStatementCounter.current() - statementsBefore).isEqualTo(3);
+    }
+}
@@ -2,22 +2,31 @@ package study.querydslprac.repository;
 
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydslprac.dto.CursorPage;
+import study.querydslprac.dto.MemberField;
 import study.querydslprac.dto.MemberSearchCondition;
 import study.querydslprac.dto.MemberTeamDto;
 import study.querydslprac.entity.Member;
 import study.querydslprac.entity.Team;
+import study.querydslprac.metrics.SqlStatementCounter;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,6 +41,8 @@ class MemberRepositoryTest {
 
     @Autowired MemberRepository memberRepository;
 
+    @Autowired EntityManagerFactory emf;
+
 
 
     @Test
@@ -118,6 +129,208 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    @Test
+    public void searchSliceTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 2));
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(first.hasNext()).isTrue();
+
+        //마지막 페이지는 limit + 1건을 채우지 못하므로 hasNext가 false
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(2, 2));
+        assertThat(last.getContent()).extracting("username").containsExactly("member5");
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    public void searchSliceSortTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamB));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 20, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //팀 쪽 필드(teamName)로도 정렬할 수 있음, 같은 팀끼리는 member_id 순
+        Slice<MemberTeamDto> byTeamName = memberRepository.searchSlice(condition,
+                PageRequest.of(0, 3, Sort.by("teamName")));
+        assertThat(byTeamName.getContent()).extracting("username").containsExactly("member2", "member1", "member3");
+
+        Slice<MemberTeamDto> byAgeDesc = memberRepository.searchSlice(condition,
+                PageRequest.of(0, 3, Sort.by(Sort.Order.desc("age"))));
+        assertThat(byAgeDesc.getContent()).extracting("username").containsExactly("member2", "member3", "member1");
+
+        //MemberTeamDto에 없는 속성은 JPQL을 만들지 않고 거절
+        assertThatThrownBy(() -> memberRepository.searchSlice(condition, PageRequest.of(0, 3, Sort.by("team"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void searchFieldsTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamB));
+        em.persist(new Member("member3", 30, teamB));
+
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        //실행된 JPQL은 하이버네이트 통계로, 실행된 SQL 수는 SqlStatementCounter로 확인
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        //팀 필드 없이 회원 컬럼만, 쿼리 한번에 팀 조인 없음
+        statistics.clear();
+        long statementsBefore = SqlStatementCounter.current();
+        List<Map<String, Object>> result = memberRepository.searchFields(condition, MemberField.parse("age,username"));
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0)).containsOnlyKeys("username", "age");
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member2", "member3");
+        assertThat(SqlStatementCounter.current() - statementsBefore).isEqualTo(1);
+        assertThat(statistics.getQueries()).hasSize(1).noneMatch(jpql -> jpql.contains(" join "));
+
+        //teamId는 조인 없이 FK로
+        statistics.clear();
+        statementsBefore = SqlStatementCounter.current();
+        List<Map<String, Object>> teamIds = memberRepository.searchFields(condition, MemberField.parse("username,teamId"));
+        assertThat(teamIds).extracting("teamId").containsOnly(teamB.getId());
+        assertThat(SqlStatementCounter.current() - statementsBefore).isEqualTo(1);
+        assertThat(statistics.getQueries()).hasSize(1).noneMatch(jpql -> jpql.contains(" join "));
+
+        //팀명 조건이 있으면 컨텐츠와 카운트 모두 조인
+        condition.setTeamName("teamB");
+        statistics.clear();
+        Page<Map<String, Object>> page = memberRepository.searchPageFields(condition,
+                MemberField.parse("username,teamId"), PageRequest.of(0, 1));
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getContent().get(0)).containsOnlyKeys("username", "teamId");
+        assertThat(page.getContent().get(0).get("teamId")).isEqualTo(teamB.getId());
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(statistics.getQueries()).hasSize(2).allMatch(jpql -> jpql.contains(" join "));
+
+        assertThatThrownBy(() -> MemberField.parse("username,password"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void searchCacheChangeTeamTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20, teamB));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("member2");
+        //변경감지 대상이 생기면 캐시된 결과가 아니라 바뀐 결과가 나와야 함
+        member1.changeTeam(teamB);
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @Test
+    public void searchPageComplexCountCacheTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(4);
+        //캐시된 카운트가 있어도 저장 이후에는 다시 계산되어야 함
+        memberRepository.save(new Member("member5", 50, teamA));
+        assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void searchByCursorTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        CursorPage<MemberTeamDto> first = memberRepository.searchByCursor(condition, null, 3);
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.isHasNext()).isTrue();
+
+        CursorPage<MemberTeamDto> second = memberRepository.searchByCursor(condition, first.getNextCursor(), 3);
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void searchByCursorSortTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 20, teamA));
+        em.persist(new Member("member2", 30, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 10, teamA));
+        em.persist(new Member(null, 40, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        //같은 나이(20)가 페이지 경계에 걸려도 member_id 순서(내림차순)로 이어서 나와야 함
+        Sort byAgeDesc = Sort.by(Sort.Order.desc("age"));
+        CursorPage<MemberTeamDto> first = memberRepository.searchByCursor(condition, byAgeDesc, null, 3);
+        assertThat(first.getContent()).extracting("age").containsExactly(40, 30, 20);
+        assertThat(first.getContent().get(2).getUsername()).isEqualTo("member3");
+        CursorPage<MemberTeamDto> second = memberRepository.searchByCursor(condition, Sort.unsorted(), first.getNextCursor(), 3);
+        assertThat(second.getContent()).extracting("username").containsExactly("member1", "member4");
+        assertThat(second.isHasNext()).isFalse();
+
+        //username이 null인 회원은 오름차순이면 맨 앞
+        Sort byUsername = Sort.by("username");
+        CursorPage<MemberTeamDto> nullFirst = memberRepository.searchByCursor(condition, byUsername, null, 1);
+        assertThat(nullFirst.getContent()).extracting("username").containsExactly((Object) null);
+        CursorPage<MemberTeamDto> rest = memberRepository.searchByCursor(condition, byUsername, nullFirst.getNextCursor(), 10);
+        assertThat(rest.getContent()).extracting("username").containsExactly("member1", "member2", "member3", "member4");
+
+        //커서와 다른 정렬, 지원하지 않는 정렬은 거부
+        assertThatThrownBy(() -> memberRepository.searchByCursor(condition, byUsername, first.getNextCursor(), 3))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberRepository.searchByCursor(condition, Sort.by("teamName"), null, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     public void querydslPredicatedExecutorTest() {
         Team teamA = new Team("teamA");
@@ -0,0 +1,74 @@
+package study.querydslprac.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired MemberTestRepository memberTestRepository;
+
+    @Test
+    public void searchPageByDeferredJoinTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+
+        Page<MemberTeamDto> result = memberTestRepository.searchPageByDeferredJoin(condition, pageRequest);
+
+        //2단계 in 조회 결과가 1단계 정렬(나이 내림차순) 순서대로 나와야 함
+        assertThat(result.getContent()).extracting("username").containsExactly("member4", "member3", "member2");
+        assertThat(result.getContent()).extracting("teamName").containsExactly("teamB", "teamB", "teamA");
+        assertThat(result.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    public void applySlicePaginationTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+
+        Slice<Member> result = memberTestRepository.applySlicePagination(condition, pageRequest);
+
+        assertThat(result.getContent()).extracting("username").containsExactly("member4", "member3", "member2");
+        assertThat(result.hasNext()).isTrue();
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydslprac.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//쓰기 트랜잭션 안에서는 하이버네이트가 쿼리 캐시를 쓰지 않으므로 @Transactional 없이 직접 커밋하고 마지막에 지움
+@SpringBootTest
+class TeamRepositoryTest {
+
+    @Autowired TeamRepository teamRepository;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired ApplicationEventPublisher publisher;
+
+    Statistics statistics;
+    Long teamId;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        teamId = transactionTemplate.execute(status -> {
+            Team team = new Team("cachedTeam");
+            em.persist(team);
+            return team.getId();
+        });
+        //쿼리 캐시 타임스탬프는 ms 단위라 커밋과 같은 ms에 넣은 결과는 stale로 보므로 넘겨줌
+        Thread.sleep(5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Team.class, teamId)));
+    }
+
+    @Test
+    public void findByNameQueryCacheTest() {
+        assertThat(teamRepository.findByName("cachedTeam")).extracting("id").containsExactly(teamId);
+
+        long queryHits = statistics.getQueryCacheHitCount();
+        long entityHits = statistics.getSecondLevelCacheHitCount();
+        long statements = statistics.getPrepareStatementCount();
+
+        //두번째 조회는 쿼리 캐시(id 목록)와 Team 2차 캐시(엔티티)로만 응답하고 SQL을 날리지 않음
+        assertThat(teamRepository.findByName("cachedTeam")).extracting("id").containsExactly(teamId);
+        assertThat(statistics.getQueryCacheHitCount() - queryHits).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount() - entityHits).isGreaterThanOrEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(0);
+    }
+
+    @Test
+    public void bulkEventEvictsTeamRegionTest() {
+        teamRepository.findByName("cachedTeam");
+
+        //회원 벌크 쓰기로는 팀 조회 결과가 비워지지 않음
+        publisher.publishEvent(new EntityChangedEvent(Member.class, true));
+        long queryHits = statistics.getQueryCacheHitCount();
+        teamRepository.findByName("cachedTeam");
+        assertThat(statistics.getQueryCacheHitCount() - queryHits).isEqualTo(1);
+
+        //팀 벌크 쓰기(JDBC)는 팀 조회 결과를 비움
+        publisher.publishEvent(new EntityChangedEvent(Team.class, true));
+        long queryMisses = statistics.getQueryCacheMissCount();
+        teamRepository.findByName("cachedTeam");
+        assertThat(statistics.getQueryCacheMissCount() - queryMisses).isEqualTo(1);
+    }
+}
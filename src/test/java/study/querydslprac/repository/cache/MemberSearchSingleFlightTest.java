@@ -0,0 +1,140 @@
+package study.querydslprac.repository.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.listener.EntityChangedEvent;
+import study.querydslprac.repository.MemberRepositoryImpl;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//첫 호출(leader)을 붙잡아두고 그동안 들어온 호출이 합쳐지는지 봄
+@SpringBootTest
+class MemberSearchSingleFlightTest {
+
+    @Autowired MemberSearchSingleFlight singleFlight;
+    @Autowired ApplicationEventPublisher publisher;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManager em;
+
+    BlockingRepository target;
+    MemberRepositoryImpl repository;
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    @BeforeEach
+    void setUp() {
+        target = new BlockingRepository(em);
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(singleFlight);
+        repository = factory.getProxy();
+        condition.setTeamName("teamA");
+    }
+
+    @AfterEach
+    void tearDown() {
+        target.releaseLeader.countDown();
+    }
+
+    @Test
+    public void coalesceTest() throws Exception {
+        FutureTask<List<MemberTeamDto>> leader = start();
+        assertThat(target.leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        FutureTask<List<MemberTeamDto>> follower = new FutureTask<>(() -> repository.search(condition));
+        Thread followerThread = new Thread(follower);
+        followerThread.start();
+        awaitWaiting(followerThread);
+
+        target.releaseLeader.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).extracting("username").containsExactly("member1");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).extracting("username").containsExactly("member1");
+        assertThat(target.executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void commitAfterLeaderStartedNotCoalescedTest() throws Exception {
+        FutureTask<List<MemberTeamDto>> leader = start();
+        assertThat(target.leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //leader가 시작된 뒤에 커밋된 쓰기 (트랜잭션 밖이라 버전이 바로 올라감)
+        publisher.publishEvent(new EntityChangedEvent(Member.class));
+
+        //자기 쓰기 이후의 조회는 leader를 기다리지 않고 새로 실행함
+        assertThat(repository.search(condition)).extracting("username").containsExactly("member1");
+        assertThat(target.executions.get()).isEqualTo(2);
+
+        target.releaseLeader.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void writeTransactionNotCoalescedTest() throws Exception {
+        FutureTask<List<MemberTeamDto>> leader = start();
+        assertThat(target.leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //쓰기 트랜잭션 안의 조회는 합치지 않으므로 leader를 기다리지 않음
+        List<MemberTeamDto> inWriteTransaction = transactionTemplate.execute(status -> repository.search(condition));
+        assertThat(inWriteTransaction).extracting("username").containsExactly("member1");
+        assertThat(target.executions.get()).isEqualTo(2);
+
+        target.releaseLeader.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+    }
+
+    private FutureTask<List<MemberTeamDto>> start() {
+        FutureTask<List<MemberTeamDto>> task = new FutureTask<>(() -> repository.search(condition));
+        new Thread(task).start();
+        return task;
+    }
+
+    //leader 결과를 기다리며 멈춰있을때까지 대기
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        //leader 결과는 wait-timeout까지만 기다리므로 TIMED_WAITING
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    //첫번째 호출만 releaseLeader까지 붙잡아둠, DB는 조회하지 않음
+    static class BlockingRepository extends MemberRepositoryImpl {
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch leaderStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLeader = new CountDownLatch(1);
+
+        BlockingRepository(EntityManager em) {
+            super(em, null, null, null, null, null, null, 1000);
+        }
+
+        @Override
+        public List<MemberTeamDto> search(MemberSearchCondition condition) {
+            if (executions.incrementAndGet() == 1) {
+                leaderStarted.countDown();
+                try {
+                    releaseLeader.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new ArrayList<>(List.of(new MemberTeamDto(1L, "member1", 10, null, null)));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package study.querydslprac.repository.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    @Test
+    public void coalesceTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Future<SingleFlight.Result<Integer>> leader = executor.submit(() -> execute(singleFlight, "teamA", () -> {
+                leaderStarted.countDown();
+                release.await();
+                return calls.incrementAndGet();
+            }));
+            leaderStarted.await();
+
+            List<Future<SingleFlight.Result<Integer>>> followers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                followers.add(executor.submit(() -> execute(singleFlight, "teamA", calls::incrementAndGet)));
+            }
+            //follower들이 leader의 결과를 기다리기 시작할 시간
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS).isShared()).isFalse();
+            for (Future<SingleFlight.Result<Integer>> follower : followers) {
+                SingleFlight.Result<Integer> result = follower.get(5, TimeUnit.SECONDS);
+                assertThat(result.isShared()).isTrue();
+                assertThat(result.getValue()).isEqualTo(1);
+            }
+            assertThat(calls.get()).isEqualTo(1);
+            assertThat(singleFlight.inFlightCount()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void waitTimeoutTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofMillis(100));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SingleFlight.Result<Integer>> leader = executor.submit(() -> execute(singleFlight, "teamA", () -> {
+                leaderStarted.countDown();
+                release.await();
+                return calls.incrementAndGet();
+            }));
+            leaderStarted.await();
+
+            //leader가 멈춰있어도 기다리다가 직접 실행함
+            SingleFlight.Result<Integer> follower = execute(singleFlight, "teamA", calls::incrementAndGet);
+            assertThat(follower.isShared()).isFalse();
+            assertThat(follower.isWaitTimedOut()).isTrue();
+            assertThat(follower.getValue()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(leader.get(5, TimeUnit.SECONDS).getValue()).isEqualTo(2);
+            assertThat(singleFlight.inFlightCount()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void notCachedTest() throws Throwable {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+        AtomicInteger calls = new AtomicInteger();
+
+        //실행이 끝난 뒤의 호출은 다시 실행함
+        singleFlight.execute("teamA", calls::incrementAndGet);
+        SingleFlight.Result<Integer> second = singleFlight.execute("teamA", calls::incrementAndGet);
+
+        assertThat(second.getValue()).isEqualTo(2);
+        assertThat(second.isShared()).isFalse();
+    }
+
+    @Test
+    public void exceptionTest() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> singleFlight.execute("teamA", () -> {
+            throw new IllegalStateException("fail");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    private static SingleFlight.Result<Integer> execute(SingleFlight<String, Integer> singleFlight, String key,
+                                                        SingleFlight.Call<Integer> call) throws Exception {
+        try {
+            return singleFlight.execute(key, call);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
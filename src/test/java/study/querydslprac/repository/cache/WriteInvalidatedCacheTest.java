@@ -0,0 +1,65 @@
+package study.querydslprac.repository.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.entity.Member;
+import study.querydslprac.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//커밋 전 값이 다른 트랜잭션(스레드)에 보이는지 봐야 하므로 @Transactional 없이 직접 트랜잭션을 잡고 롤백함
+@SpringBootTest
+class WriteInvalidatedCacheTest {
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberCountCache countCache;
+    @Autowired MemberSearchCache searchCache;
+
+    @Test
+    public void writeTransactionCountNotCachedTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("uncommittedCount");
+        MemberSearchKey key = MemberSearchKey.of(condition);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("uncommittedCount", 10));
+            //flush 후에는 isDirty()가 false라서 영속성 컨텍스트만으로는 커밋 전 변경이 있는지 알 수 없음
+            em.flush();
+
+            //컨텐츠가 페이지를 꽉 채우므로 카운트쿼리를 날림, 자기 쓰기는 보여야 함
+            assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)).getTotalElements())
+                    .isEqualTo(1);
+            //다른 스레드(트랜잭션 밖)에서 커밋 전 카운트가 캐시에 보이면 안됨
+            assertThat(CompletableFuture.supplyAsync(() -> countCache.getIfPresent(key)).join()).isNull();
+
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    public void writeTransactionSearchNotCachedTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("uncommittedSearch");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("uncommittedSearch", 10));
+            em.flush();
+
+            assertThat(memberRepository.search(condition)).extracting("username").containsExactly("uncommittedSearch");
+            assertThat(searchCache.getCache().getIfPresent(MemberSearchKey.of(condition))).isNull();
+            //트랜잭션 밖의 다른 요청은 커밋 전 row를 보면 안됨
+            assertThat(CompletableFuture.supplyAsync(() -> memberRepository.search(condition)).join()).isEmpty();
+
+            status.setRollbackOnly();
+        });
+    }
+}
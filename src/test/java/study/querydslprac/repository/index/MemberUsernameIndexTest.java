@@ -0,0 +1,120 @@
+package study.querydslprac.repository.index;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.entity.Member;
+import study.querydslprac.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//인덱스는 커밋 후에 반영되므로 @Transactional 없이 직접 커밋하고 마지막에 지움
+@SpringBootTest
+class MemberUsernameIndexTest {
+
+    @Autowired MemberUsernameIndex usernameIndex;
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired EntityManager em;
+
+    @Test
+    public void exactAndPrefixTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Member> members = memberRepository.saveAll(List.of(
+                new Member("idxAlice", 10),
+                new Member("idxAlan", 20),
+                new Member("idxAlan", 30),
+                new Member("idxBob", 40)));
+
+        try {
+            assertThat(usernameIndex.isReady()).isTrue();
+            assertThat(usernameIndex.findIds("idxAlan")).hasSize(2);
+            assertThat(usernameIndex.findIds("idxAl")).isEmpty();
+            assertThat(usernameIndex.autocomplete("idxA", 10)).containsExactly("idxAlan", "idxAlice");
+            assertThat(usernameIndex.autocomplete("idx", 2)).containsExactly("idxAlan", "idxAlice");
+            assertThat(memberRepository.findByUsername("idxBob")).extracting("age").containsExactly(40);
+            assertThat(memberRepository.findByUsername("idxNobody")).isEmpty();
+
+            //회원명 변경
+            Long bobId = members.get(3).getId();
+            tx.executeWithoutResult(status -> em.find(Member.class, bobId).setUsername("idxBrian"));
+            assertThat(usernameIndex.findIds("idxBob")).isEmpty();
+            assertThat(usernameIndex.autocomplete("idxB", 10)).containsExactly("idxBrian");
+
+            //롤백된 변경은 반영되지 않음
+            tx.executeWithoutResult(status -> {
+                em.remove(em.find(Member.class, bobId));
+                em.flush();
+                status.setRollbackOnly();
+            });
+            assertThat(usernameIndex.findIds("idxBrian")).containsExactly(bobId);
+        } finally {
+            memberRepository.deleteAll(members);
+        }
+        assertThat(usernameIndex.autocomplete("idx", 10)).isEmpty();
+    }
+
+    @Test
+    public void uncommittedChangesTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Member saved = memberRepository.save(new Member("idxTx", 10));
+            em.flush();
+
+            //커밋 전이라 인덱스에는 없으므로 DB로 조회함
+            assertThat(usernameIndex.findIds("idxTx")).isEmpty();
+            assertThat(usernameIndex.hasUncommittedChanges()).isTrue();
+            assertThat(memberRepository.findByUsername("idxTx")).containsExactly(saved);
+            status.setRollbackOnly();
+        });
+        assertThat(usernameIndex.hasUncommittedChanges()).isFalse();
+        assertThat(memberRepository.findByUsername("idxTx")).isEmpty();
+    }
+
+    @Test
+    public void compactionTest() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 1100; i++) {
+            members.add(new Member(String.format("idxBulk%04d", i), i % 100));
+        }
+        members = memberRepository.saveAll(members);
+
+        try {
+            assertThat(usernameIndex.autocomplete("idxBulk00", 20)).hasSize(10)
+                    .startsWith("idxBulk0000", "idxBulk0001")
+                    .endsWith("idxBulk0009");
+            assertThat(usernameIndex.findIds("idxBulk1099")).containsExactly(members.get(1099).getId());
+            assertThat(usernameIndex.memoryBytes()).isGreaterThanOrEqualTo(1000L * (11 + 4 + 8));
+        } finally {
+            memberRepository.deleteAll(members);
+        }
+        assertThat(usernameIndex.findIds("idxBulk0000")).isEmpty();
+    }
+
+    @Test
+    public void rebuildTest() {
+        //정렬 순서와 다르게 넣어서 재구성시 정렬되는지 확인
+        List<Member> members = memberRepository.saveAll(List.of(
+                new Member("idxRe한글", 10),
+                new Member("idxReB", 20),
+                new Member("idxReA", 30),
+                new Member("idxReB", 40)));
+
+        try {
+            usernameIndex.rebuild();
+
+            assertThat(usernameIndex.autocomplete("idxRe", 10)).containsExactly("idxReA", "idxReB", "idxRe한글");
+            assertThat(usernameIndex.findIds("idxReB"))
+                    .containsExactly(members.get(1).getId(), members.get(3).getId());
+            assertThat(usernameIndex.findIds("idxRe한글")).containsExactly(members.get(0).getId());
+        } finally {
+            memberRepository.deleteAll(members);
+        }
+    }
+}
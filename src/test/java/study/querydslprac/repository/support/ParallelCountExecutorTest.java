@@ -0,0 +1,102 @@
+package study.querydslprac.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydslprac.metrics.SqlStatementCounter;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//워커 하나로 풀이 밀리는 상황을 만듦
+@SpringBootTest(properties = {
+        "member.parallel-count.enabled=true",
+        "member.parallel-count.pool-size=1",
+        "member.parallel-count.timeout=300ms"})
+class ParallelCountExecutorTest {
+
+    @Autowired ParallelCountExecutor parallelCountExecutor;
+    @Autowired EntityManager em;
+
+    @Test
+    public void parallelCountTest() throws Exception {
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> countThread = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+
+        ParallelCountExecutor.CountFuture count = parallelCountExecutor.submit(() -> {
+            countThread.set(Thread.currentThread());
+            started.countDown();
+            return em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+        });
+        assertThat(count).isNotNull();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long statementsBefore = SqlStatementCounter.current();
+        assertThat(count.await()).isGreaterThanOrEqualTo(0);
+
+        //워커 스레드에서 셌고, 워커가 실행한 SQL은 호출한 스레드 몫으로 더해짐
+        assertThat(countThread.get()).isNotSameAs(caller);
+        assertThat(SqlStatementCounter.current() - statementsBefore).isEqualTo(1);
+    }
+
+    @Test
+    public void starvedPoolFallbackTest() throws Exception {
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ParallelCountExecutor.CountFuture blocker = parallelCountExecutor.submit(() -> {
+            blockerStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0L;
+        });
+        assertThat(blockerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            //하나뿐인 워커가 막혀있으므로 큐에서 기다리지 않고 호출한 스레드에서 바로 셈
+            AtomicReference<Thread> countThread = new AtomicReference<>();
+            ParallelCountExecutor.CountFuture starved = parallelCountExecutor.submit(() -> {
+                countThread.set(Thread.currentThread());
+                return 7L;
+            });
+            assertThat(starved).isNotNull();
+            assertThat(starved.await()).isEqualTo(7);
+            assertThat(countThread.get()).isSameAs(Thread.currentThread());
+        } finally {
+            release.countDown();
+        }
+        assertThat(blocker.await()).isEqualTo(0);
+    }
+
+    @Test
+    public void timeoutCancelFallbackTest() throws Exception {
+        Thread caller = Thread.currentThread();
+        CountDownLatch workerStarted = new CountDownLatch(1);
+        CountDownLatch workerInterrupted = new CountDownLatch(1);
+
+        ParallelCountExecutor.CountFuture slow = parallelCountExecutor.submit(() -> {
+            if (Thread.currentThread() == caller) {
+                return 7L;
+            }
+            workerStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                workerInterrupted.countDown();
+            }
+            return -1L;
+        });
+        assertThat(workerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //timeout(300ms)이 지나면 워커를 취소(cancelQuery + 인터럽트)하고 호출한 스레드에서 다시 셈
+        assertThat(slow.await()).isEqualTo(7);
+        assertThat(workerInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
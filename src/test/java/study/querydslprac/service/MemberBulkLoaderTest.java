@@ -0,0 +1,120 @@
+package study.querydslprac.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydslprac.dto.BulkInsertResult;
+import study.querydslprac.dto.MemberSearchCondition;
+import study.querydslprac.dto.MemberTeamDto;
+import study.querydslprac.repository.MemberJpaRepository;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class MemberBulkLoaderTest {
+
+    @Autowired MemberBulkLoader memberBulkLoader;
+    @Autowired MemberJpaRepository memberJpaRepository;
+
+    @Test
+    public void csvLoadTest() throws Exception {
+        String csv = "username,age,teamName\n" +
+                "member1,10,teamA\n" +
+                "\"member,2\",20,teamA\n" +
+                "member3,30,teamB\n" +
+                "member4,40,\n";
+
+        BulkInsertResult result = memberBulkLoader.load(new StringReader(csv), MemberBulkLoader.Format.CSV);
+
+        assertThat(result.getRows()).isEqualTo(4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        List<MemberTeamDto> teamA = memberJpaRepository.search(condition);
+        assertThat(teamA).extracting("username").containsExactlyInAnyOrder("member1", "member,2");
+    }
+
+    @Test
+    public void csvWithoutHeaderTest() throws Exception {
+        //첫 줄이 username으로 시작해도 헤더와 다르면 데이터로 저장함
+        String csv = "username1,20,teamA\n" +
+                "username2,30,teamA\n";
+
+        BulkInsertResult result = memberBulkLoader.load(new StringReader(csv), MemberBulkLoader.Format.CSV);
+
+        assertThat(result.getRows()).isEqualTo(2);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("username1");
+        assertThat(memberJpaRepository.search(condition)).extracting("age").containsExactly(20);
+    }
+
+    @Test
+    public void ndjsonLoadTest() throws Exception {
+        String ndjson = "{\"username\":\"member1\",\"age\":10,\"teamName\":\"teamC\"}\n" +
+                "{\"username\":\"member2\",\"age\":20}\n";
+
+        BulkInsertResult result = memberBulkLoader.load(new StringReader(ndjson), MemberBulkLoader.Format.NDJSON);
+
+        assertThat(result.getRows()).isEqualTo(2);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member2");
+        List<MemberTeamDto> members = memberJpaRepository.search(condition);
+        assertThat(members).hasSize(1);
+        assertThat(members.get(0).getTeamId()).isNull();
+    }
+
+    @Test
+    public void malformedLineTest() {
+        int chunkSize = (int) ReflectionTestUtils.getField(memberBulkLoader, "chunkSize");
+        ReflectionTestUtils.setField(memberBulkLoader, "chunkSize", 2);
+        try {
+            String csv = "member1,10\n" +
+                    "member2,20\n" +
+                    "member3,30\n" +
+                    "member4,forty\n";
+
+            //앞의 청크(2건)는 저장되고, 실패한 줄이 있던 청크(member3)는 저장되지 않음
+            assertThatThrownBy(() -> memberBulkLoader.load(new StringReader(csv), MemberBulkLoader.Format.CSV))
+                    .isInstanceOfSatisfying(MemberBulkLoadException.class, e -> {
+                        assertThat(e.getLineNumber()).isEqualTo(4);
+                        assertThat(e.getCommittedRows()).isEqualTo(2);
+                    });
+
+            assertThatThrownBy(() -> memberBulkLoader.load(new StringReader("{\"username\":"), MemberBulkLoader.Format.NDJSON))
+                    .isInstanceOfSatisfying(MemberBulkLoadException.class, e -> assertThat(e.getLineNumber()).isEqualTo(1));
+        } finally {
+            ReflectionTestUtils.setField(memberBulkLoader, "chunkSize", chunkSize);
+        }
+    }
+
+    @Test
+    public void storageFailureTest() {
+        int chunkSize = (int) ReflectionTestUtils.getField(memberBulkLoader, "chunkSize");
+        ReflectionTestUtils.setField(memberBulkLoader, "chunkSize", 2);
+        try {
+            //username 컬럼(varchar 255)보다 긴 값은 DB에서 실패함
+            String csv = "member1,10\n" +
+                    "member2,20\n" +
+                    "member3,30\n" +
+                    "x".repeat(300) + ",40\n";
+
+            //실패한 청크의 첫 줄(3번째 줄)과 그 전 청크까지 저장된 건수를 알려줌
+            assertThatThrownBy(() -> memberBulkLoader.load(new StringReader(csv), MemberBulkLoader.Format.CSV))
+                    .isInstanceOfSatisfying(MemberBulkLoadException.class, e -> {
+                        assertThat(e.isStorageFailure()).isTrue();
+                        assertThat(e.getLineNumber()).isEqualTo(3);
+                        assertThat(e.getCommittedRows()).isEqualTo(2);
+                    });
+        } finally {
+            ReflectionTestUtils.setField(memberBulkLoader, "chunkSize", chunkSize);
+        }
+    }
+}
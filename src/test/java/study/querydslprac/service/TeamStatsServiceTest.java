@@ -0,0 +1,92 @@
+package study.querydslprac.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydslprac.dto.TeamStatsDto;
+import study.querydslprac.entity.Member;
+import study.querydslprac.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//통계는 커밋 후에 반영되므로 @Transactional 없이 직접 커밋하고 마지막에 지움
+@SpringBootTest
+class TeamStatsServiceTest {
+
+    @Autowired TeamStatsService teamStatsService;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired EntityManager em;
+
+    @Test
+    public void incrementalStatsTest() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Long[] ids = tx.execute(status -> {
+            Team teamA = new Team("statsTeamA");
+            Team teamB = new Team("statsTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("statsMember1", 10, teamA);
+            Member member2 = new Member("statsMember2", 30, teamA);
+            em.persist(member1);
+            em.persist(member2);
+            return new Long[]{teamA.getId(), teamB.getId(), member1.getId(), member2.getId()};
+        });
+        Long teamAId = ids[0], teamBId = ids[1], member1Id = ids[2], member2Id = ids[3];
+
+        try {
+            TeamStatsDto teamA = stats(teamAId);
+            assertThat(teamA.getTeamName()).isEqualTo("statsTeamA");
+            assertThat(teamA.getMemberCount()).isEqualTo(2);
+            assertThat(teamA.getAgeSum()).isEqualTo(40);
+            assertThat(teamA.getAgeMin()).isEqualTo(10);
+            assertThat(teamA.getAgeMax()).isEqualTo(30);
+            assertThat(stats(teamBId).getMemberCount()).isEqualTo(0);
+
+            //나이 변경 + 팀 변경
+            tx.executeWithoutResult(status -> {
+                Member member1 = em.find(Member.class, member1Id);
+                member1.setAge(50);
+                member1.changeTeam(em.find(Team.class, teamBId));
+            });
+            assertThat(stats(teamAId).getMemberCount()).isEqualTo(1);
+            assertThat(stats(teamAId).getAgeMin()).isEqualTo(30);
+            assertThat(stats(teamBId).getMemberCount()).isEqualTo(1);
+            assertThat(stats(teamBId).getAgeMax()).isEqualTo(50);
+
+            //롤백된 변경은 반영되지 않음
+            tx.executeWithoutResult(status -> {
+                em.remove(em.find(Member.class, member2Id));
+                em.flush();
+                status.setRollbackOnly();
+            });
+            assertThat(stats(teamAId).getMemberCount()).isEqualTo(1);
+
+            tx.executeWithoutResult(status -> em.remove(em.find(Member.class, member2Id)));
+            assertThat(stats(teamAId).getMemberCount()).isEqualTo(0);
+            assertThat(stats(teamAId).getAgeMin()).isNull();
+            assertThat(stats(teamAId).getAgeAvg()).isNull();
+        } finally {
+            tx.executeWithoutResult(status -> {
+                em.createQuery("delete from Member m where m.id in :ids")
+                        .setParameter("ids", List.of(member1Id, member2Id))
+                        .executeUpdate();
+                em.createQuery("delete from Team t where t.id in :ids")
+                        .setParameter("ids", List.of(teamAId, teamBId))
+                        .executeUpdate();
+            });
+        }
+    }
+
+    private TeamStatsDto stats(Long teamId) {
+        return teamStatsService.findAll().stream()
+                .filter(dto -> dto.getTeamId().equals(teamId))
+                .findFirst()
+                .orElseThrow();
+    }
+}